@@ -112,6 +112,42 @@ public interface ConfigObject {
     
     boolean doesFastEntryRendering();
     
+    /**
+     * Returns the number of milliseconds dynamic display generators can take when building recipe views,
+     * after which only the displays they have generated so far are shown.
+     *
+     * @return the timeout of dynamic display generators in milliseconds
+     */
+    @ApiStatus.Experimental
+    int getDynamicDisplayGeneratorTimeout();
+    
+    /**
+     * Returns whether displays are filled from recipes in parallel when reloading,
+     * which requires the registered display fillers to be thread safe.
+     *
+     * @return whether displays are filled in parallel
+     */
+    @ApiStatus.Experimental
+    boolean doesFillDisplaysInParallel();
+    
+    /**
+     * Returns whether displays filled from recipes are only softly referenced, so they can be released under memory pressure
+     * and filled again from their recipes when needed. This requires the display fillers to be deterministic.
+     *
+     * @return whether displays filled from recipes can be released
+     */
+    @ApiStatus.Experimental
+    boolean isLazyRecipeDisplaysEnabled();
+    
+    /**
+     * Returns whether the icons of items on the entry panel are rendered once into a texture, and drawn from it afterwards.
+     * Items with an enchantment glint or animated textures are still rendered every frame.
+     *
+     * @return whether item icons are cached
+     */
+    @ApiStatus.Experimental
+    boolean isItemIconCacheEnabled();
+    
     boolean doDebugRenderTimeRequired();
     
     boolean doMergeDisplayUnderOne();
@@ -160,6 +196,24 @@ public interface ConfigObject {
     @ApiStatus.Experimental
     int getAsyncSearchPartitionSize();
     
+    /**
+     * Returns the number of worker threads used for searching and filtering entries,
+     * or {@code 0} if it should be decided from the number of available processors.
+     *
+     * @return the number of worker threads
+     */
+    @ApiStatus.Experimental
+    int getAsyncSearchThreadCount();
+    
+    /**
+     * Returns whether the prepared search data of entries should be cached on disk,
+     * so searches are fast right after launching the game.
+     *
+     * @return whether the search data is cached on disk
+     */
+    @ApiStatus.Experimental
+    boolean isPersistentSearchCacheEnabled();
+    
     @ApiStatus.Experimental
     boolean doDebugSearchTimeRequired();
     
@@ -37,9 +37,11 @@ import me.shedaniel.rei.api.common.util.Identifiable;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.ApiStatus;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -155,6 +157,15 @@ public interface CategoryRegistry extends Reloadable<REIClientPlugin>, Iterable<
         configure(category, config -> config.addWorkstations(stations));
     }
     
+    /**
+     * Returns the identifiers of the categories which {@code stack} is a workstation of, compared fuzzily.
+     *
+     * @param stack the stack to look up
+     * @return the identifiers of the categories which the stack is a workstation of
+     */
+    @ApiStatus.Experimental
+    Set<CategoryIdentifier<?>> getWorkstationCategories(EntryStack<?> stack);
+    
     default <D extends Display> void removePlusButton(CategoryIdentifier<D> category) {
         configure(category, CategoryConfiguration::removePlusButton);
     }
@@ -202,6 +202,14 @@ public interface DisplayRegistry extends RecipeManagerContext<REIClientPlugin> {
         return !isDisplayVisible(display);
     }
     
+    /**
+     * Invalidates the cached visibility of the displays, for visibility predicates whose results have changed.
+     *
+     * @see DisplayVisibilityPredicate#getStability()
+     */
+    @ApiStatus.Experimental
+    void invalidateDisplayVisibility();
+    
     /**
      * Returns an unmodifiable list of visibility predicates.
      *
@@ -29,6 +29,7 @@ import me.shedaniel.rei.api.common.display.Display;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.world.InteractionResult;
+import org.jetbrains.annotations.ApiStatus;
 
 @Environment(EnvType.CLIENT)
 public interface DisplayVisibilityPredicate extends Comparable<DisplayVisibilityPredicate> {
@@ -53,6 +54,40 @@ public interface DisplayVisibilityPredicate extends Comparable<DisplayVisibility
      */
     EventResult handleDisplay(DisplayCategory<?> category, Display display);
     
+    /**
+     * Returns when the results of this predicate may change, the visibility of the displays is cached until then.
+     * Predicates which are not {@link Stability#VOLATILE} should only depend on the display, and on what their stability declares.
+     *
+     * @return the stability of this predicate
+     */
+    @ApiStatus.Experimental
+    default Stability getStability() {
+        return Stability.VOLATILE;
+    }
+    
+    /**
+     * Declares when the results of a {@link DisplayVisibilityPredicate} have to be re-evaluated.
+     */
+    @ApiStatus.Experimental
+    enum Stability {
+        /**
+         * The results only change on reload, or when {@link me.shedaniel.rei.api.client.registry.display.DisplayRegistry#invalidateDisplayVisibility()} is called.
+         */
+        STABLE,
+        /**
+         * The results may also change when the config is saved.
+         */
+        CONFIG,
+        /**
+         * The results may also change when the client level changes, for example on dimension change.
+         */
+        LEVEL,
+        /**
+         * The results may change at any time, and are never cached.
+         */
+        VOLATILE
+    }
+    
     @Override
     default int compareTo(DisplayVisibilityPredicate o) {
         return Double.compare(getPriority(), o.getPriority());
@@ -221,6 +221,13 @@ public interface EntryStack<T> extends TextRepresentable, Renderer {
         public static Settings<Function<EntryStack<?>, List<Component>>> TOOLTIP_APPEND_EXTRA;
         @Environment(EnvType.CLIENT)
         public static Settings<Float> FLUID_RENDER_RATIO;
+        /**
+         * Declares whether the icon of the stack can be cached and drawn from a texture, instead of being rendered every frame.
+         * Stacks whose rendering changes over time should opt out.
+         */
+        @Environment(EnvType.CLIENT)
+        @ApiStatus.Experimental
+        public static Settings<Boolean> ICON_CACHEABLE;
         
         static {
             EnvExecutor.runInEnv(Env.CLIENT, () -> () -> {
@@ -228,6 +235,7 @@ public interface EntryStack<T> extends TextRepresentable, Renderer {
                 TOOLTIP_PROCESSOR = new Settings<>((stack, tooltip) -> tooltip);
                 TOOLTIP_APPEND_EXTRA = new Settings<>(stack -> Collections.emptyList());
                 FLUID_RENDER_RATIO = new Settings<>(1.0F);
+                ICON_CACHEABLE = new Settings<>(true);
             });
         }
         
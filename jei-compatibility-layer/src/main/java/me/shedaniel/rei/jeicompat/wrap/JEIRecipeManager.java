@@ -112,6 +112,7 @@ public enum JEIRecipeManager implements IRecipeManager {
     public <T> void hideRecipe(T recipe, ResourceLocation recipeCategoryUid) {
         Set<Object> recipes = hiddenRecipes.computeIfAbsent(recipeCategoryUid.categoryId(), $ -> new HashSet<>());
         recipes.add(recipe);
+        DisplayRegistry.getInstance().invalidateDisplayVisibility();
     }
     
     @Override
@@ -122,6 +123,7 @@ public enum JEIRecipeManager implements IRecipeManager {
         if (recipes.isEmpty()) {
             hiddenRecipes.remove(categoryIdentifier);
         }
+        DisplayRegistry.getInstance().invalidateDisplayVisibility();
     }
     
     @Override
@@ -153,6 +155,11 @@ public enum JEIRecipeManager implements IRecipeManager {
             }
             return EventResult.pass();
         }
+        
+        @Override
+        public Stability getStability() {
+            return Stability.STABLE;
+        }
     }
     
     public class CategoryPredicate implements CategoryVisibilityPredicate {
@@ -44,7 +44,8 @@ import me.shedaniel.rei.api.common.registry.ReloadStage;
 import me.shedaniel.rei.impl.client.gui.ScreenOverlayImpl;
 import me.shedaniel.rei.impl.client.gui.hints.HintProvider;
 import me.shedaniel.rei.impl.client.gui.widget.search.OverlaySearchField;
-import me.shedaniel.rei.impl.client.search.argument.Argument;
+import me.shedaniel.rei.impl.client.search.PersistentSearchCache;
+import me.shedaniel.rei.impl.client.search.SearchIndex;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.client.Minecraft;
@@ -232,7 +233,7 @@ public class REIRuntimeImpl implements REIRuntime {
     
     @Override
     public void startReload() {
-        Argument.SEARCH_CACHE.clear();
+        SearchIndex.invalidate();
         getOverlay().ifPresent(ScreenOverlay::queueReloadOverlay);
         lastDisplayScreen.clear();
     }
@@ -244,7 +245,7 @@ public class REIRuntimeImpl implements REIRuntime {
     
     @Override
     public void endReload(ReloadStage stage) {
-        Argument.SEARCH_CACHE.clear();
+        SearchIndex.invalidate();
         getOverlay().ifPresent(ScreenOverlay::queueReloadOverlay);
     }
     
@@ -258,6 +259,10 @@ public class REIRuntimeImpl implements REIRuntime {
             if (isOverlayVisible() && REIRuntime.getInstance().getOverlay().isPresent()) {
                 ScreenOverlayImpl.getInstance().tick();
             }
+            if (ConfigObject.getInstance().isPersistentSearchCacheEnabled()) {
+                // The search index may be built on a worker, which cannot read the options and resource packs
+                PersistentSearchCache.updateFingerprint();
+            }
         });
     }
 }
@@ -27,6 +27,7 @@ import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.mojang.blaze3d.platform.InputConstants;
+import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import dev.architectury.hooks.client.screen.ScreenHooks;
@@ -60,11 +61,14 @@ import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.api.common.util.ImmutableTextComponent;
 import me.shedaniel.rei.impl.client.REIRuntimeImpl;
 import me.shedaniel.rei.impl.client.config.entries.*;
+import me.shedaniel.rei.impl.client.entry.renderer.ItemIconAtlas;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringRule;
 import me.shedaniel.rei.impl.client.entry.filtering.rules.ManualFilteringRule;
 import me.shedaniel.rei.impl.client.gui.ScreenOverlayImpl;
 import me.shedaniel.rei.impl.client.gui.credits.CreditsScreen;
 import me.shedaniel.rei.impl.client.gui.performance.entry.PerformanceEntry;
+import me.shedaniel.rei.impl.client.registry.display.DisplayVisibilityCache;
+import me.shedaniel.rei.impl.client.view.ViewCache;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.ChatFormatting;
@@ -266,6 +270,9 @@ public class ConfigManagerImpl implements ConfigManager {
             return InteractionResult.PASS;
         });
         AutoConfig.getConfigHolder(ConfigObjectImpl.class).save();
+        DisplayVisibilityCache.invalidateConfig();
+        RenderSystem.recordRenderCall(ItemIconAtlas::invalidate);
+        ViewCache.invalidate();
     }
     
     @Override
@@ -224,6 +224,30 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
         return advanced.miscellaneous.newFastEntryRendering;
     }
     
+    @Override
+    @ApiStatus.Experimental
+    public int getDynamicDisplayGeneratorTimeout() {
+        return Mth.clamp(advanced.miscellaneous.dynamicDisplayGeneratorTimeout, 50, 5000);
+    }
+    
+    @Override
+    @ApiStatus.Experimental
+    public boolean doesFillDisplaysInParallel() {
+        return advanced.miscellaneous.fillDisplaysInParallel;
+    }
+    
+    @Override
+    @ApiStatus.Experimental
+    public boolean isLazyRecipeDisplaysEnabled() {
+        return advanced.miscellaneous.lazyRecipeDisplays;
+    }
+    
+    @Override
+    @ApiStatus.Experimental
+    public boolean isItemIconCacheEnabled() {
+        return advanced.miscellaneous.cacheItemIcons;
+    }
+    
     @Override
     public boolean doDebugRenderTimeRequired() {
         return advanced.layout.debugRenderTimeRequired;
@@ -342,6 +366,18 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
         return advanced.search.asyncSearchPartitionSize;
     }
     
+    @Override
+    @ApiStatus.Experimental
+    public int getAsyncSearchThreadCount() {
+        return Mth.clamp(advanced.search.asyncSearchThreadCount, 0, 64);
+    }
+    
+    @Override
+    @ApiStatus.Experimental
+    public boolean isPersistentSearchCacheEnabled() {
+        return advanced.search.persistentSearchCache;
+    }
+    
     @Override
     @ApiStatus.Experimental
     public boolean doDebugSearchTimeRequired() {
@@ -566,6 +602,9 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
             @Comment("Declares whether REI should search async.") private boolean asyncSearch = true;
             @Comment("Declares how many entries should be grouped one async search.") @ConfigEntry.BoundedDiscrete(min = 25, max = 400)
             private int asyncSearchPartitionSize = 100;
+            @Comment("Declares how many threads should be used for async search, 0 to decide from the processor count.") @ConfigEntry.BoundedDiscrete(min = 0, max = 64)
+            private int asyncSearchThreadCount = 0;
+            @Comment("Declares whether REI should cache the search data of entries on disk.") private boolean persistentSearchCache = false;
             @ConfigEntry.Gui.EnumHandler(option = ConfigEntry.Gui.EnumHandler.EnumDisplayOption.BUTTON)
             private SearchMode tooltipSearch = SearchMode.ALWAYS;
             @ConfigEntry.Gui.EnumHandler(option = ConfigEntry.Gui.EnumHandler.EnumDisplayOption.BUTTON)
@@ -586,6 +625,11 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
             @Comment("Declares whether arrows in containers should be clickable.") private boolean clickableRecipeArrows = true;
             private boolean registerRecipesInAnotherThread = true;
             private boolean newFastEntryRendering = true;
+            @Comment("Declares how long dynamic display generators can take in milliseconds, before only their partial results are shown.") @ConfigEntry.BoundedDiscrete(min = 50, max = 5000)
+            private int dynamicDisplayGeneratorTimeout = 1000;
+            @Comment("Declares whether displays should be filled from recipes in parallel, which requires every display filler to be thread safe.") private boolean fillDisplaysInParallel = false;
+            @Comment("Declares whether displays filled from recipes can be released from memory, and filled again when needed.") private boolean lazyRecipeDisplays = false;
+            @Comment("Declares whether the icons of items should be cached in a texture, instead of rendering their models every frame.") private boolean cacheItemIcons = false;
         }
         
         public static class Filtering {
@@ -28,6 +28,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -58,7 +59,7 @@ public class FilteringContextImpl implements FilteringContext {
         for (FilteringContextType type : FilteringContextType.values()) {
             this.stacks.computeIfAbsent(type, t -> Sets.newHashSet());
         }
-        this.stacks.get(FilteringContextType.DEFAULT).addAll(async ? CollectionUtils.mapParallel(allStacks, HashedEntryStackWrapper::new)
+        this.stacks.get(FilteringContextType.DEFAULT).addAll(async ? WorkerPool.invoke(() -> CollectionUtils.mapParallel(allStacks, HashedEntryStackWrapper::new))
                 : CollectionUtils.map(allStacks, HashedEntryStackWrapper::new));
         fillCache();
     }
@@ -94,15 +95,15 @@ public class FilteringContextImpl implements FilteringContext {
             completableFutures.add(CompletableFuture.runAsync(() -> {
                 this.stacks.get(FilteringContextType.DEFAULT).removeAll(hiddenStacks);
                 this.stacks.get(FilteringContextType.DEFAULT).removeAll(shownStacks);
-            }));
+            }, WorkerPool.getExecutor()));
             completableFutures.add(CompletableFuture.runAsync(() -> {
                 this.stacks.get(FilteringContextType.SHOWN).removeAll(hiddenStacks);
                 this.stacks.get(FilteringContextType.SHOWN).addAll(shownStacks);
-            }));
+            }, WorkerPool.getExecutor()));
             completableFutures.add(CompletableFuture.runAsync(() -> {
                 this.stacks.get(FilteringContextType.HIDDEN).addAll(hiddenStacks);
                 this.stacks.get(FilteringContextType.HIDDEN).removeAll(shownStacks);
-            }));
+            }, WorkerPool.getExecutor()));
             try {
                 CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[0])).get(20, TimeUnit.SECONDS);
             } catch (InterruptedException | ExecutionException | TimeoutException e) {
@@ -24,6 +24,7 @@
 package me.shedaniel.rei.impl.client.entry.filtering;
 
 import com.mojang.serialization.Lifecycle;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import me.shedaniel.rei.impl.client.config.entries.FilteringEntry;
 import me.shedaniel.rei.impl.client.entry.filtering.rules.ManualFilteringRule;
 import me.shedaniel.rei.impl.client.entry.filtering.rules.SearchFilteringRule;
@@ -41,6 +42,7 @@ import org.jetbrains.annotations.ApiStatus;
 
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.LongPredicate;
 
 @ApiStatus.Internal
 @ApiStatus.Experimental
@@ -85,5 +87,16 @@ public interface FilteringRule<T extends FilteringRule<?>> {
         return null;
     }
     
+    /**
+     * Updates the exact hashes this rule hides and shows from the result of {@code oldCache} to the result of
+     * {@code newCache}, without processing every entry again.
+     *
+     * @param registered tests whether an exact hash belongs to a registered entry
+     * @return whether the hashes were updated, or {@code false} if every entry has to be processed again
+     */
+    default boolean processDelta(Object oldCache, Object newCache, LongSet hiddenHashes, LongSet shownHashes, LongPredicate registered) {
+        return false;
+    }
+    
     T createNew();
 }
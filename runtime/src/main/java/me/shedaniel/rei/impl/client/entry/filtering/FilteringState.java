@@ -0,0 +1,167 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.entry.filtering;
+
+import com.google.common.base.Stopwatch;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.nbt.CompoundTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongPredicate;
+
+/**
+ * The exact hashes hidden and shown by each {@link FilteringRule}, kept between refilters so that only
+ * the rules whose configuration or cache changed have to be processed again.
+ * <p>
+ * Each rule is processed against every entry on its own, and an entry is hidden by the first rule that hides
+ * or shows it, which is the same as applying the rules from the last to the first.
+ */
+@Environment(EnvType.CLIENT)
+public class FilteringState {
+    private final List<RuleState> rules;
+    private final LongSet hiddenHashes;
+    
+    private FilteringState(List<RuleState> rules, LongSet hiddenHashes) {
+        this.rules = rules;
+        this.hiddenHashes = hiddenHashes;
+    }
+    
+    public static FilteringState update(@Nullable FilteringState previous, Collection<EntryStack<?>> entries, List<FilteringRule<?>> rules, LongPredicate registered) {
+        boolean sameRules = previous != null && previous.rules.size() == rules.size();
+        boolean full = !sameRules;
+        List<RuleState> states = new ArrayList<>(rules.size());
+        LongSet changedHashes = new LongOpenHashSet();
+        FilteringContextImpl context = null;
+        Stopwatch stopwatch = Stopwatch.createUnstarted();
+        
+        for (int i = 0; i < rules.size(); i++) {
+            stopwatch.reset().start();
+            FilteringRule<?> rule = rules.get(i);
+            CompoundTag config = rule.save(new CompoundTag());
+            Object cache = rule.prepareCache(true);
+            RuleState old = sameRules ? previous.rules.get(i) : null;
+            if (old != null && (old.rule != rule || !old.config.equals(config))) {
+                old = null;
+                full = true;
+            }
+            
+            if (old != null && Objects.equals(old.cache, cache)) {
+                states.add(old);
+                continue;
+            }
+            
+            LongSet hidden = null, shown = null;
+            if (old != null) {
+                hidden = new LongOpenHashSet(old.hidden);
+                shown = new LongOpenHashSet(old.shown);
+                if (!rule.processDelta(old.cache, cache, hidden, shown, registered)) {
+                    hidden = shown = null;
+                }
+            }
+            if (hidden == null) {
+                if (context == null) {
+                    context = new FilteringContextImpl(entries);
+                }
+                FilteringCacheImpl filteringCache = new FilteringCacheImpl();
+                filteringCache.setCache(rule, cache);
+                FilteringResult result = rule.processFilteredStacks(context, filteringCache, true);
+                hidden = hashes(result.getHiddenStacks());
+                shown = hashes(result.getShownStacks());
+            }
+            
+            RuleState state = new RuleState(rule, config, cache, hidden, shown);
+            states.add(state);
+            if (old != null) {
+                addChanged(changedHashes, old.hidden, state.hidden);
+                addChanged(changedHashes, old.shown, state.shown);
+            }
+            RoughlyEnoughItemsCore.LOGGER.debug("Refiltered rule [%s] in %s.", FilteringRule.REGISTRY.getKey(rule).toString(), stopwatch.stop().toString());
+        }
+        
+        LongSet hiddenHashes;
+        if (full) {
+            hiddenHashes = new LongOpenHashSet();
+            for (int i = states.size() - 1; i >= 0; i--) {
+                hiddenHashes.addAll(states.get(i).hidden);
+                hiddenHashes.removeAll(states.get(i).shown);
+            }
+        } else {
+            hiddenHashes = new LongOpenHashSet(previous.hiddenHashes);
+            for (LongIterator iterator = changedHashes.iterator(); iterator.hasNext(); ) {
+                long hash = iterator.nextLong();
+                if (isHidden(states, hash)) {
+                    hiddenHashes.add(hash);
+                } else {
+                    hiddenHashes.remove(hash);
+                }
+            }
+        }
+        return new FilteringState(states, hiddenHashes);
+    }
+    
+    private static boolean isHidden(List<RuleState> states, long hash) {
+        for (RuleState state : states) {
+            if (state.shown.contains(hash)) return false;
+            if (state.hidden.contains(hash)) return true;
+        }
+        return false;
+    }
+    
+    private static LongSet hashes(Collection<HashedEntryStackWrapper> stacks) {
+        LongSet hashes = new LongOpenHashSet(stacks.size());
+        for (HashedEntryStackWrapper stack : stacks) {
+            hashes.add(stack.hashExact());
+        }
+        return hashes;
+    }
+    
+    private static void addChanged(LongSet changedHashes, LongSet oldHashes, LongSet newHashes) {
+        for (LongIterator iterator = oldHashes.iterator(); iterator.hasNext(); ) {
+            long hash = iterator.nextLong();
+            if (!newHashes.contains(hash)) changedHashes.add(hash);
+        }
+        for (LongIterator iterator = newHashes.iterator(); iterator.hasNext(); ) {
+            long hash = iterator.nextLong();
+            if (!oldHashes.contains(hash)) changedHashes.add(hash);
+        }
+    }
+    
+    public LongSet getHiddenHashes() {
+        return hiddenHashes;
+    }
+    
+    private record RuleState(FilteringRule<?> rule, CompoundTag config, @Nullable Object cache, LongSet hidden, LongSet shown) {
+    }
+}
@@ -24,6 +24,7 @@
 package me.shedaniel.rei.impl.client.entry.filtering.rules;
 
 import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import me.shedaniel.rei.api.client.config.ConfigObject;
@@ -35,6 +36,7 @@ import me.shedaniel.rei.impl.client.entry.filtering.AbstractFilteringRule;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringCache;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContext;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringResult;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TranslatableComponent;
@@ -45,6 +47,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 public class ManualFilteringRule extends AbstractFilteringRule<ManualFilteringRule> {
@@ -72,7 +75,7 @@ public class ManualFilteringRule extends AbstractFilteringRule<ManualFilteringRu
                         }
                     }
                     return output;
-                }));
+                }, WorkerPool.getExecutor()));
             }
             try {
                 CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
@@ -100,8 +103,31 @@ public class ManualFilteringRule extends AbstractFilteringRule<ManualFilteringRu
         return result;
     }
     
+    @Override
+    public boolean processDelta(Object oldCache, Object newCache, LongSet hiddenHashes, LongSet shownHashes, LongPredicate registered) {
+        LongSet oldFilteredStacks = (LongSet) oldCache;
+        LongSet newFilteredStacks = (LongSet) newCache;
+        for (LongIterator iterator = oldFilteredStacks.iterator(); iterator.hasNext(); ) {
+            long hash = iterator.nextLong();
+            if (!newFilteredStacks.contains(hash)) {
+                hiddenHashes.remove(hash);
+            }
+        }
+        for (LongIterator iterator = newFilteredStacks.iterator(); iterator.hasNext(); ) {
+            long hash = iterator.nextLong();
+            if (!oldFilteredStacks.contains(hash) && registered.test(hash)) {
+                hiddenHashes.add(hash);
+            }
+        }
+        return true;
+    }
+    
     private void processList(Collection<EntryStack<?>> stacks, FilteringResult result, boolean async, LongSet filteredStacks) {
-        result.hide((async ? stacks.parallelStream() : stacks.stream()).filter(stack -> filteredStacks.contains(EntryStacks.hashExact(stack))).collect(Collectors.toList()));
+        if (async) {
+            result.hide(WorkerPool.invoke(() -> stacks.parallelStream().filter(stack -> filteredStacks.contains(EntryStacks.hashExact(stack))).collect(Collectors.toList())));
+        } else {
+            result.hide(stacks.stream().filter(stack -> filteredStacks.contains(EntryStacks.hashExact(stack))).collect(Collectors.toList()));
+        }
     }
     
     @Override
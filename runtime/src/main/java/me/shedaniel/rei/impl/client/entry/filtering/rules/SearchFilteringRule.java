@@ -34,6 +34,7 @@ import me.shedaniel.rei.impl.client.entry.filtering.AbstractFilteringRule;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringCache;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContext;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringResult;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.ChatFormatting;
@@ -119,7 +120,7 @@ public class SearchFilteringRule extends AbstractFilteringRule<SearchFilteringRu
                     }
                 }
                 return output;
-            }));
+            }, WorkerPool.getExecutor()));
         }
     }
     
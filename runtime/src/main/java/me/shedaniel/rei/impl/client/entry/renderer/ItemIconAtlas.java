@@ -0,0 +1,226 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.entry.renderer;
+
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.*;
+import com.mojang.math.Matrix4f;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import me.shedaniel.math.Rectangle;
+import me.shedaniel.rei.api.client.config.ConfigObject;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.renderer.block.model.ItemOverrides;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cache of item icons rendered into a texture, so batches of item entries can be drawn as textured quads
+ * instead of rendering every item model on every frame.
+ * <p>
+ * Icons are keyed by {@link EntryStacks#hashExact(EntryStack)}, and the least recently drawn icons are replaced when the atlas is full.
+ * Items with an enchantment glint, animated textures, model overrides or custom renderers are never cached,
+ * and stacks can opt out with {@link EntryStack.Settings#ICON_CACHEABLE}.
+ * <p>
+ * Only entries of the entry panel drawn at the size of the cached icons are drawn from the atlas,
+ * as icons drawn at any other size would be stretched from their cached resolution.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class ItemIconAtlas {
+    private static final int SIZE = 2048;
+    private static final int ICON_SIZE = 16;
+    private static final List<Queued> QUEUE = new ArrayList<>();
+    @Nullable
+    private static ItemIconAtlas instance;
+    private static boolean entryPanel;
+    private final RenderTarget target;
+    private final int scale;
+    private final int columns;
+    private final Long2ObjectLinkedOpenHashMap<Icon> icons = new Long2ObjectLinkedOpenHashMap<>();
+    private int nextSlot;
+    
+    private ItemIconAtlas(int scale) {
+        this.target = new TextureTarget(SIZE, SIZE, true, Minecraft.ON_OSX);
+        this.target.setClearColor(0, 0, 0, 0);
+        this.scale = scale;
+        this.columns = SIZE / (ICON_SIZE * scale);
+    }
+    
+    /**
+     * Marks the start of rendering the entries of the entry panel, the only entries which can be drawn from the atlas.
+     */
+    public static void beginEntryPanel() {
+        entryPanel = true;
+    }
+    
+    public static void endEntryPanel() {
+        entryPanel = false;
+    }
+    
+    /**
+     * Queues {@code entry} to be drawn from the atlas by {@link #flush(PoseStack)}.
+     *
+     * @return whether the entry was queued, otherwise it has to be rendered as usual
+     */
+    public static boolean queue(EntryStack<ItemStack> entry, BakedModel model, Rectangle bounds) {
+        if (!entryPanel || !RenderSystem.isOnRenderThread() || !ConfigObject.getInstance().isItemIconCacheEnabled()
+            || bounds.width != ICON_SIZE || bounds.height != ICON_SIZE || !isCacheable(entry, model)) {
+            return false;
+        }
+        ItemIconAtlas atlas = getAtlas();
+        // Icons queued in the same flush can never replace each other
+        if (QUEUE.size() >= atlas.getCapacity()) {
+            return false;
+        }
+        QUEUE.add(new Queued(entry, EntryStacks.hashExact(entry), model, bounds.clone(), entry.getZ()));
+        return true;
+    }
+    
+    /**
+     * Renders the queued entries missing from the atlas into it, and draws all the queued entries from the atlas.
+     */
+    public static void flush(PoseStack matrices) {
+        if (QUEUE.isEmpty()) return;
+        try {
+            ItemIconAtlas atlas = getAtlas();
+            List<Queued> missing = new ArrayList<>();
+            for (Queued queued : QUEUE) {
+                Icon icon = atlas.icons.getAndMoveToLast(queued.hash());
+                if (icon == null || icon.model() != queued.model()) {
+                    missing.add(queued);
+                }
+            }
+            if (!missing.isEmpty()) {
+                atlas.render(missing);
+            }
+            atlas.draw(matrices, QUEUE);
+        } finally {
+            QUEUE.clear();
+        }
+    }
+    
+    public static void invalidate() {
+        if (instance != null) {
+            instance.target.destroyBuffers();
+            instance = null;
+        }
+    }
+    
+    private static boolean isCacheable(EntryStack<ItemStack> entry, BakedModel model) {
+        if (entry.isEmpty() || !entry.get(EntryStack.Settings.ICON_CACHEABLE)) return false;
+        if (entry.getValue().hasFoil() || model.isCustomRenderer() || model.getOverrides() != ItemOverrides.EMPTY) return false;
+        return model.getParticleIcon().getAnimationTicker() == null;
+    }
+    
+    private static ItemIconAtlas getAtlas() {
+        int scale = Math.max(1, (int) Math.ceil(Minecraft.getInstance().getWindow().getGuiScale()));
+        if (instance == null || instance.scale != scale) {
+            invalidate();
+            instance = new ItemIconAtlas(scale);
+        }
+        return instance;
+    }
+    
+    private int getCapacity() {
+        return columns * columns;
+    }
+    
+    private void render(List<Queued> missing) {
+        Matrix4f projection = RenderSystem.getProjectionMatrix();
+        float guiSize = SIZE / (float) scale;
+        target.bindWrite(true);
+        RenderSystem.setProjectionMatrix(Matrix4f.orthographic(0.0F, guiSize, 0.0F, guiSize, 1000.0F, 3000.0F));
+        PoseStack modelViewStack = RenderSystem.getModelViewStack();
+        modelViewStack.pushPose();
+        modelViewStack.setIdentity();
+        modelViewStack.translate(0.0D, 0.0D, -2000.0D);
+        RenderSystem.applyModelViewMatrix();
+        try {
+            for (Queued queued : missing) {
+                Icon icon = icons.get(queued.hash());
+                int slot;
+                if (icon != null) {
+                    slot = icon.slot();
+                } else if (nextSlot < getCapacity()) {
+                    slot = nextSlot++;
+                } else {
+                    slot = icons.removeFirst().slot();
+                }
+                icons.putAndMoveToLast(queued.hash(), new Icon(slot, queued.model()));
+                int x = (slot % columns) * ICON_SIZE, y = (slot / columns) * ICON_SIZE;
+                RenderSystem.enableScissor(x * scale, SIZE - (y + ICON_SIZE) * scale, ICON_SIZE * scale, ICON_SIZE * scale);
+                RenderSystem.clearColor(0, 0, 0, 0);
+                RenderSystem.clear(16640, Minecraft.ON_OSX);
+                Minecraft.getInstance().getItemRenderer().renderGuiItem(queued.entry().getValue(), x, y);
+                RenderSystem.disableScissor();
+            }
+        } finally {
+            modelViewStack.popPose();
+            RenderSystem.applyModelViewMatrix();
+            RenderSystem.setProjectionMatrix(projection);
+            Minecraft.getInstance().getMainRenderTarget().bindWrite(true);
+        }
+    }
+    
+    private void draw(PoseStack matrices, List<Queued> queue) {
+        RenderSystem.setShader(GameRenderer::getPositionTexShader);
+        RenderSystem.setShaderTexture(0, target.getColorTextureId());
+        RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+        RenderSystem.enableBlend();
+        RenderSystem.defaultBlendFunc();
+        Matrix4f matrix = matrices.last().pose();
+        BufferBuilder builder = Tesselator.getInstance().getBuilder();
+        builder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+        float iconSize = ICON_SIZE * scale / (float) SIZE;
+        for (Queued queued : queue) {
+            Icon icon = icons.get(queued.hash());
+            if (icon == null) continue;
+            // The texture of the render target is upside down
+            float u = (icon.slot() % columns) * iconSize, v = 1.0F - (icon.slot() / columns) * iconSize;
+            Rectangle bounds = queued.bounds();
+            builder.vertex(matrix, bounds.x, bounds.getMaxY(), queued.z()).uv(u, v - iconSize).endVertex();
+            builder.vertex(matrix, bounds.getMaxX(), bounds.getMaxY(), queued.z()).uv(u + iconSize, v - iconSize).endVertex();
+            builder.vertex(matrix, bounds.getMaxX(), bounds.y, queued.z()).uv(u + iconSize, v).endVertex();
+            builder.vertex(matrix, bounds.x, bounds.y, queued.z()).uv(u, v).endVertex();
+        }
+        builder.end();
+        BufferUploader.end(builder);
+    }
+    
+    private record Icon(int slot, BakedModel model) {}
+    
+    private record Queued(EntryStack<ItemStack> entry, long hash, BakedModel model, Rectangle bounds, float z) {}
+}
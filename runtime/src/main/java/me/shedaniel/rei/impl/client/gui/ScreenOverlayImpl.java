@@ -65,6 +65,7 @@ import me.shedaniel.rei.impl.client.REIRuntimeImpl;
 import me.shedaniel.rei.impl.client.gui.craftable.CraftableFilter;
 import me.shedaniel.rei.impl.client.gui.dragging.CurrentDraggingStack;
 import me.shedaniel.rei.impl.client.gui.modules.Menu;
+import me.shedaniel.rei.impl.client.gui.performance.RenderInstrumentation;
 import me.shedaniel.rei.impl.client.gui.widget.*;
 import me.shedaniel.rei.impl.client.gui.widget.search.OverlaySearchField;
 import me.shedaniel.rei.impl.common.util.Weather;
@@ -474,6 +475,8 @@ public class ScreenOverlayImpl extends ScreenOverlay {
     
     @Override
     public void render(PoseStack matrices, int mouseX, int mouseY, float delta) {
+        RenderInstrumentation.beginFrame();
+        long instrumentationStart = RenderInstrumentation.start();
         if (shouldReload || !calculateOverlayBounds().equals(bounds)) {
             ENTRY_LIST_WIDGET.updateSearch(REIRuntimeImpl.getSearchField().getText(), true);
             init();
@@ -523,6 +526,7 @@ public class ScreenOverlayImpl extends ScreenOverlay {
                 Tooltip.create(new TranslatableComponent("text.rei.view_recipes_for", collect)).queue();
             }
         }
+        RenderInstrumentation.record(RenderInstrumentation.Source.OVERLAY, instrumentationStart);
     }
     
     private static Rectangle calculateOverlayBounds() {
@@ -543,6 +547,7 @@ public class ScreenOverlayImpl extends ScreenOverlay {
     }
     
     public void lateRender(PoseStack matrices, int mouseX, int mouseY, float delta) {
+        long instrumentationStart = RenderInstrumentation.start();
         if (REIRuntime.getInstance().isOverlayVisible()) {
             REIRuntimeImpl.getSearchField().laterRender(matrices, mouseX, mouseY, delta);
             for (Widget widget : widgets) {
@@ -580,6 +585,7 @@ public class ScreenOverlayImpl extends ScreenOverlay {
             }
             AFTER_RENDER.clear();
         }
+        RenderInstrumentation.record(RenderInstrumentation.Source.LATE_RENDER, instrumentationStart);
     }
     
     public void renderTooltip(PoseStack matrices, Tooltip tooltip) {
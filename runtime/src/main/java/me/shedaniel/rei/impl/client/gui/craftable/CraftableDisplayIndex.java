@@ -0,0 +1,227 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.gui.craftable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.*;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.impl.client.registry.display.DisplaySignature;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tracks which displays can be crafted from a set of materials, identified by their fuzzy hashes.
+ * <p>
+ * Every non-empty required ingredient of a display is a slot, which is satisfied when any of its stacks is a material.
+ * Materials are indexed to the slots accepting them, so changing the materials only touches the slots affected by the change.
+ * <p>
+ * Displays are referred to by their category and position in the display list of the category, so the index does not
+ * keep lazily referenced displays from being released.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public class CraftableDisplayIndex {
+    private final Map<CategoryIdentifier<?>, List<Display>> allDisplays;
+    private final CategoryIdentifier<?>[] displayCategories;
+    private final int[] displayPositions;
+    private final int modificationCount;
+    private final int[] slotDisplays;
+    private final int[] slotMaterials;
+    private final int[] missingSlots;
+    private final Long2ObjectMap<int[]> slotsByMaterial;
+    private final LongSet materials = new LongOpenHashSet();
+    private final BitSet craftable = new BitSet();
+    
+    private CraftableDisplayIndex(Map<CategoryIdentifier<?>, List<Display>> allDisplays, CategoryIdentifier<?>[] displayCategories, int[] displayPositions,
+            int modificationCount, int[] slotDisplays, int[] missingSlots, Long2ObjectMap<int[]> slotsByMaterial) {
+        this.allDisplays = allDisplays;
+        this.displayCategories = displayCategories;
+        this.displayPositions = displayPositions;
+        this.modificationCount = modificationCount;
+        this.slotDisplays = slotDisplays;
+        this.slotMaterials = new int[slotDisplays.length];
+        this.missingSlots = missingSlots;
+        this.slotsByMaterial = slotsByMaterial;
+        for (int i = 0; i < missingSlots.length; i++) {
+            if (missingSlots[i] == 0) {
+                craftable.set(i);
+            }
+        }
+    }
+    
+    /**
+     * Builds the index of {@code allDisplays}, which is up to date with the display registry
+     * as long as it has been modified {@code modificationCount} times.
+     */
+    public static CraftableDisplayIndex build(Map<CategoryIdentifier<?>, List<Display>> allDisplays, int modificationCount) {
+        List<CategoryIdentifier<?>> categories = new ArrayList<>();
+        IntArrayList positions = new IntArrayList();
+        for (Map.Entry<CategoryIdentifier<?>, List<Display>> entry : allDisplays.entrySet()) {
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                categories.add(entry.getKey());
+                positions.add(i);
+            }
+        }
+        List<long[][]> requirements = WorkerPool.invoke(() -> IntStream.range(0, positions.size()).parallel()
+                .mapToObj(i -> DisplaySignature.of(allDisplays.get(categories.get(i)), positions.getInt(i)).requirements())
+                .collect(Collectors.toList()));
+        
+        IntArrayList slotDisplays = new IntArrayList();
+        int[] missingSlots = new int[positions.size()];
+        Long2ObjectMap<IntArrayList> slotsByMaterial = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < positions.size(); i++) {
+            long[][] slots = requirements.get(i);
+            if (slots == null) {
+                // Displays failing to provide their requirements are never craftable
+                missingSlots[i] = Integer.MAX_VALUE;
+                continue;
+            }
+            missingSlots[i] = slots.length;
+            for (long[] slot : slots) {
+                int slotId = slotDisplays.size();
+                slotDisplays.add(i);
+                for (long hash : slot) {
+                    slotsByMaterial.computeIfAbsent(hash, h -> new IntArrayList()).add(slotId);
+                }
+            }
+        }
+        
+        Long2ObjectMap<int[]> slotsByMaterialArrays = new Long2ObjectOpenHashMap<>(slotsByMaterial.size());
+        for (Long2ObjectMap.Entry<IntArrayList> entry : slotsByMaterial.long2ObjectEntrySet()) {
+            slotsByMaterialArrays.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+        return new CraftableDisplayIndex(allDisplays, categories.toArray(new CategoryIdentifier[0]), positions.toIntArray(), modificationCount, slotDisplays.toIntArray(), missingSlots, slotsByMaterialArrays);
+    }
+    
+    public int size() {
+        return displayPositions.length;
+    }
+    
+    public int getModificationCount() {
+        return modificationCount;
+    }
+    
+    /**
+     * Returns the display with the index {@code id}, or {@code null} if it is a lazily referenced display which could not be filled again.
+     */
+    @Nullable
+    public Display getDisplay(int id) {
+        return allDisplays.get(displayCategories[id]).get(displayPositions[id]);
+    }
+    
+    /**
+     * Updates the materials to {@code materials}, only visiting the slots accepting the added or removed materials.
+     */
+    public void setMaterials(LongSet materials) {
+        LongList removed = new LongArrayList();
+        for (long hash : this.materials) {
+            if (!materials.contains(hash)) {
+                removed.add(hash);
+            }
+        }
+        for (int i = 0; i < removed.size(); i++) {
+            removeMaterial(removed.getLong(i));
+        }
+        for (long hash : materials) {
+            addMaterial(hash);
+        }
+    }
+    
+    /**
+     * Applies the added and removed materials, only visiting the slots accepting them.
+     */
+    public void updateMaterials(LongSet added, LongSet removed) {
+        for (long hash : removed) {
+            removeMaterial(hash);
+        }
+        for (long hash : added) {
+            addMaterial(hash);
+        }
+    }
+    
+    public void addMaterial(long hash) {
+        if (!materials.add(hash)) return;
+        int[] slots = slotsByMaterial.get(hash);
+        if (slots == null) return;
+        for (int slot : slots) {
+            if (slotMaterials[slot]++ == 0) {
+                int display = slotDisplays[slot];
+                if (--missingSlots[display] == 0) {
+                    craftable.set(display);
+                }
+            }
+        }
+    }
+    
+    public void removeMaterial(long hash) {
+        if (!materials.remove(hash)) return;
+        int[] slots = slotsByMaterial.get(hash);
+        if (slots == null) return;
+        for (int slot : slots) {
+            if (--slotMaterials[slot] == 0) {
+                int display = slotDisplays[slot];
+                if (missingSlots[display]++ == 0) {
+                    craftable.clear(display);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the displays craftable from the current materials, the returned set must not be modified.
+     */
+    public BitSet getCraftable() {
+        return craftable;
+    }
+    
+    /**
+     * Returns the displays which are not craftable from the current materials,
+     * but have a missing slot accepting any of {@code extraMaterials}.
+     */
+    public BitSet findCandidates(LongSet extraMaterials) {
+        BitSet candidates = new BitSet();
+        for (long hash : extraMaterials) {
+            if (materials.contains(hash)) continue;
+            int[] slots = slotsByMaterial.get(hash);
+            if (slots == null) continue;
+            for (int slot : slots) {
+                if (slotMaterials[slot] == 0) {
+                    candidates.set(slotDisplays[slot]);
+                }
+            }
+        }
+        candidates.andNot(craftable);
+        return candidates;
+    }
+}
@@ -23,20 +23,21 @@
 
 package me.shedaniel.rei.impl.client.gui.craftable;
 
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
-import it.unimi.dsi.fastutil.longs.LongSets;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
 import me.shedaniel.rei.api.common.transfer.info.stack.SlotAccessor;
 import me.shedaniel.rei.api.common.util.EntryStacks;
-import me.shedaniel.rei.impl.client.ClientHelperImpl;
 import net.minecraft.client.Minecraft;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class CraftableFilter {
     public static final CraftableFilter INSTANCE = new CraftableFilter();
+    private final InventorySnapshot snapshot = new InventorySnapshot();
+    private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
     private boolean dirty = false;
-    private LongSet invStacks = new LongOpenHashSet();
     
     public void markDirty() {
         dirty = true;
@@ -51,23 +52,40 @@ public class CraftableFilter {
         return false;
     }
     
-    public void tick() {
+    /**
+     * Adds a listener notified with the hashes added to or removed from the inventory,
+     * while holding the lock of this filter.
+     */
+    public void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+    
+    public synchronized void tick() {
         if (dirty) return;
-        LongSet currentStacks;
+        boolean changed;
         try {
-            currentStacks = ClientHelperImpl.getInstance()._getInventoryItemsTypes();
+            changed = snapshot.update(Minecraft.getInstance().player);
         } catch (Throwable throwable) {
             throwable.printStackTrace();
-            currentStacks = LongSets.EMPTY_SET;
+            return;
         }
-        if (!currentStacks.equals(this.invStacks)) {
-            invStacks = new LongOpenHashSet(currentStacks);
+        if (changed) {
+            for (InventoryListener listener : listeners) {
+                listener.onInventoryChanged(snapshot.getAdded(), snapshot.getRemoved());
+            }
             markDirty();
         }
     }
     
-    public boolean matches(EntryStack<?> stack, Iterable<SlotAccessor> inputSlots) {
-        if (invStacks.contains(EntryStacks.hashFuzzy(stack))) return true;
+    /**
+     * Returns the fuzzy hashes of the stacks in the player inventory, the returned set must not be modified.
+     */
+    public synchronized LongSet getInventoryStacks() {
+        return snapshot.getStacks();
+    }
+    
+    public synchronized boolean matches(EntryStack<?> stack, Iterable<SlotAccessor> inputSlots) {
+        if (snapshot.getStacks().contains(EntryStacks.hashFuzzy(stack))) return true;
         if (stack.getType() != VanillaEntryTypes.ITEM) return false;
         for (SlotAccessor slot : inputSlots) {
             EntryStack<?> itemStack = EntryStacks.of(slot.getItemStack());
@@ -77,4 +95,9 @@ public class CraftableFilter {
         }
         return false;
     }
+    
+    @FunctionalInterface
+    public interface InventoryListener {
+        void onInventoryChanged(LongSet added, LongSet removed);
+    }
 }
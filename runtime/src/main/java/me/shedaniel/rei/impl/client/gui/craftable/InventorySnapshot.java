@@ -0,0 +1,167 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.gui.craftable;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.core.NonNullList;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A change tracking snapshot of the fuzzy hashes of the stacks in the player inventory.
+ * <p>
+ * The inventory is only rescanned when its change counter, the open menu or its state id changes,
+ * and every rescan only produces the hashes added or removed since the last one.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public class InventorySnapshot {
+    /**
+     * Stacks can be modified in place without notifying the inventory, so it is rescanned every once in a while regardless.
+     */
+    private static final int RESCAN_INTERVAL = 100;
+    private final LongSet stacks = new LongOpenHashSet();
+    private final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+    private final LongSet touched = new LongOpenHashSet();
+    private final LongSet added = new LongOpenHashSet();
+    private final LongSet removed = new LongOpenHashSet();
+    private long[] slotHashes = new long[0];
+    @Nullable
+    private Inventory inventory;
+    @Nullable
+    private AbstractContainerMenu menu;
+    private int timesChanged;
+    private int stateId;
+    private int ticksSinceScan;
+    
+    /**
+     * Updates the snapshot from the inventory of {@code player}.
+     *
+     * @return whether any hash was added or removed, see {@link #getAdded()} and {@link #getRemoved()}
+     */
+    public boolean update(Player player) {
+        added.clear();
+        removed.clear();
+        Inventory inventory = player.getInventory();
+        AbstractContainerMenu menu = player.containerMenu;
+        if (inventory == this.inventory && menu == this.menu && inventory.getTimesChanged() == timesChanged
+                && menu.getStateId() == stateId && ++ticksSinceScan < RESCAN_INTERVAL) {
+            return false;
+        }
+        
+        this.inventory = inventory;
+        this.menu = menu;
+        this.timesChanged = inventory.getTimesChanged();
+        this.stateId = menu.getStateId();
+        this.ticksSinceScan = 0;
+        scan(inventory);
+        return !added.isEmpty() || !removed.isEmpty();
+    }
+    
+    private void scan(Inventory inventory) {
+        int size = 0;
+        for (NonNullList<ItemStack> compartment : inventory.compartments) {
+            size += compartment.size();
+        }
+        boolean fresh = size != slotHashes.length || counts.isEmpty();
+        if (fresh) {
+            // Start over, the hashes present before are reconciled with the new ones below
+            touched.addAll(stacks);
+            counts.clear();
+            slotHashes = new long[size];
+        }
+        
+        int slot = 0;
+        for (NonNullList<ItemStack> compartment : inventory.compartments) {
+            for (ItemStack stack : compartment) {
+                long hash = EntryStacks.hashFuzzy(EntryStacks.of(stack));
+                if (fresh) {
+                    increment(hash);
+                } else if (slotHashes[slot] != hash) {
+                    decrement(slotHashes[slot]);
+                    increment(hash);
+                }
+                slotHashes[slot++] = hash;
+            }
+        }
+        
+        for (LongIterator iterator = touched.iterator(); iterator.hasNext(); ) {
+            long hash = iterator.nextLong();
+            boolean present = counts.containsKey(hash);
+            if (present != stacks.contains(hash)) {
+                if (present) {
+                    stacks.add(hash);
+                    added.add(hash);
+                } else {
+                    stacks.remove(hash);
+                    removed.add(hash);
+                }
+            }
+        }
+        touched.clear();
+    }
+    
+    private void increment(long hash) {
+        if (counts.addTo(hash, 1) == 0) {
+            touched.add(hash);
+        }
+    }
+    
+    private void decrement(long hash) {
+        if (counts.addTo(hash, -1) == 1) {
+            counts.remove(hash);
+            touched.add(hash);
+        }
+    }
+    
+    /**
+     * Returns the hashes currently in the inventory, the returned set is reused and must not be modified.
+     */
+    public LongSet getStacks() {
+        return stacks;
+    }
+    
+    /**
+     * Returns the hashes added by the last update, the returned set is reused and must not be modified.
+     */
+    public LongSet getAdded() {
+        return added;
+    }
+    
+    /**
+     * Returns the hashes removed by the last update, the returned set is reused and must not be modified.
+     */
+    public LongSet getRemoved() {
+        return removed;
+    }
+}
@@ -27,16 +27,24 @@ import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.datafixers.util.Pair;
 import me.shedaniel.clothconfig2.gui.widget.DynamicElementListWidget;
 import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.client.registry.display.DisplayRegistry;
+import me.shedaniel.rei.api.client.registry.display.visibility.DisplayVisibilityPredicate;
 import me.shedaniel.rei.api.common.plugins.REIPlugin;
 import me.shedaniel.rei.api.common.plugins.REIPluginProvider;
 import me.shedaniel.rei.impl.client.gui.performance.entry.EntryListEntry;
+import me.shedaniel.rei.impl.client.gui.performance.entry.StatisticListEntry;
 import me.shedaniel.rei.impl.client.gui.performance.entry.SubCategoryListEntry;
+import me.shedaniel.rei.impl.client.gui.toast.ExportRecipeIdentifierToast;
+import me.shedaniel.rei.impl.client.registry.display.DisplayRegistryImpl;
+import me.shedaniel.rei.impl.client.view.ViewCache;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientPool;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiComponent;
 import net.minecraft.client.gui.components.Button;
 import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.client.resources.language.I18n;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.TextColor;
 import net.minecraft.network.chat.TextComponent;
@@ -114,6 +122,12 @@ public class PerformanceScreen extends Screen {
         return NANOSECONDS;
     }
     
+    private static String formatNanos(long time) {
+        TimeUnit unit = chooseUnit(time);
+        double value = (double) time / NANOSECONDS.convert(1, unit);
+        return String.format(Locale.ROOT, "%.3g", value) + abbreviate(unit);
+    }
+    
     private static String abbreviate(TimeUnit unit) {
         switch (unit) {
             case NANOSECONDS:
@@ -144,6 +158,16 @@ public class PerformanceScreen extends Screen {
                 this.parent = null;
             }));
         }
+        boolean hasRenderTimings = RenderInstrumentation.get(RenderInstrumentation.Source.OVERLAY).getCount() > 0
+                                   || RenderInstrumentation.get(RenderInstrumentation.Source.LATE_RENDER).getCount() > 0;
+        if (hasRenderTimings) {
+            int x = addRightAlignedButton(width - 4, new TextComponent("Reset"), button -> {
+                RenderInstrumentation.reset();
+                init(minecraft, width, height);
+            });
+            x = addRightAlignedButton(x - 4, new TextComponent("Export JSON"), button -> exportRenderTimings(true));
+            addRightAlignedButton(x - 4, new TextComponent("Export CSV"), button -> exportRenderTimings(false));
+        }
         list = new PerformanceEntryListWidget();
         RoughlyEnoughItemsCore.PERFORMANCE_LOGGER.getStages().forEach((stage, inner) -> {
             List<EntryListEntry> entries = new ArrayList<>();
@@ -161,9 +185,78 @@ public class PerformanceScreen extends Screen {
             entries.sort(Comparator.<EntryListEntry>comparingLong(value -> value.time).reversed());
             list.addItem(new SubCategoryListEntry(new TextComponent(stage), (List<PerformanceScreen.PerformanceEntry>) (List<? extends PerformanceScreen.PerformanceEntry>) entries, inner.totalNano(), false));
         });
+        {
+            long hits = ViewCache.getHits(), misses = ViewCache.getMisses();
+            List<PerformanceScreen.PerformanceEntry> entries = new ArrayList<>();
+            entries.add(new StatisticListEntry(new TextComponent("Status"), describeViewCacheStatus()));
+            entries.add(new StatisticListEntry(new TextComponent("Hits"), new TextComponent(String.valueOf(hits))));
+            entries.add(new StatisticListEntry(new TextComponent("Misses"), new TextComponent(String.valueOf(misses))));
+            entries.add(new StatisticListEntry(new TextComponent("Hit Rate"), new TextComponent(hits + misses == 0 ? "-" : String.format(Locale.ROOT, "%.1f%%", hits * 100.0 / (hits + misses)))));
+            entries.add(new StatisticListEntry(new TextComponent("Cached Views"), new TextComponent(String.valueOf(ViewCache.size()))));
+            list.addItem(new SubCategoryListEntry(new TextComponent("Recipe View Cache"), entries, ViewCache.getBuildNanos(), false));
+        }
+        if (DisplayRegistry.getInstance() instanceof DisplayRegistryImpl displayRegistry && displayRegistry.getIngredientReport() != null) {
+            EntryIngredientPool.Report report = displayRegistry.getIngredientReport();
+            List<PerformanceScreen.PerformanceEntry> entries = new ArrayList<>();
+            entries.add(new StatisticListEntry(new TextComponent("Stacks"), new TextComponent(String.valueOf(report.stacks()))));
+            entries.add(new StatisticListEntry(new TextComponent("Unique Values"), new TextComponent(String.valueOf(report.uniqueValues()))));
+            entries.add(new StatisticListEntry(new TextComponent("Shared Values"), new TextComponent(String.valueOf(report.internedValues()))));
+            entries.add(new StatisticListEntry(new TextComponent("Estimated Memory Saved"), new TextComponent(String.format(Locale.ROOT, "%.1f MB", report.estimatedBytesSaved() / 1048576.0))));
+            list.addItem(new SubCategoryListEntry(new TextComponent("Display Ingredients"), entries, -1, false));
+        }
+        if (hasRenderTimings) {
+            List<PerformanceScreen.PerformanceEntry> entries = new ArrayList<>();
+            for (RenderInstrumentation.Source source : RenderInstrumentation.Source.values()) {
+                entries.add(new StatisticListEntry(new TextComponent(source.getName()), describe(RenderInstrumentation.get(source))));
+            }
+            list.addItem(new SubCategoryListEntry(new TextComponent("Render Timings"), entries, -1, false));
+            entries = new ArrayList<>();
+            for (RenderInstrumentation.Phase phase : RenderInstrumentation.Phase.values()) {
+                entries.add(new StatisticListEntry(new TextComponent(phase.getName()), describe(RenderInstrumentation.get(phase))));
+            }
+            list.addItem(new SubCategoryListEntry(new TextComponent("Entry Render Phases"), entries, -1, false));
+            entries = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : RenderInstrumentation.getRendererCounts()) {
+                String name = entry.getKey();
+                entries.add(new StatisticListEntry(new TextComponent(name.substring(name.lastIndexOf('.') + 1)), new TextComponent(String.valueOf(entry.getValue()))));
+            }
+            list.addItem(new SubCategoryListEntry(new TextComponent("Rendered Entries by Renderer"), entries, -1, false));
+        }
         addWidget(list);
     }
     
+    private int addRightAlignedButton(int maxX, Component text, Button.OnPress onPress) {
+        int buttonWidth = Minecraft.getInstance().font.width(text) + 10;
+        addRenderableWidget(new Button(maxX - buttonWidth, 4, buttonWidth, 20, text, onPress));
+        return maxX - buttonWidth;
+    }
+    
+    /**
+     * Views are not cached while any visibility predicate is volatile, which is the default stability of predicates.
+     */
+    private static Component describeViewCacheStatus() {
+        if (DisplayRegistry.getInstance() instanceof DisplayRegistryImpl displayRegistry && !displayRegistry.isDisplayVisibilityStable()) {
+            for (DisplayVisibilityPredicate predicate : displayRegistry.getVisibilityPredicates()) {
+                if (predicate.getStability() == DisplayVisibilityPredicate.Stability.VOLATILE) {
+                    return new TextComponent("Disabled (volatile visibility predicate " + predicate.getClass().getName() + ")");
+                }
+            }
+            return new TextComponent("Disabled (volatile visibility predicate)");
+        }
+        return new TextComponent("Enabled");
+    }
+    
+    private static Component describe(RenderInstrumentation.Histogram histogram) {
+        if (histogram.getCount() == 0) return new TextComponent("-");
+        return new TextComponent(String.format(Locale.ROOT, "%d samples, avg. %s, p50 %s, p99 %s, max %s", histogram.getCount(),
+                formatNanos(histogram.getMean()), formatNanos(histogram.getPercentile(0.5)), formatNanos(histogram.getPercentile(0.99)), formatNanos(histogram.getMax())));
+    }
+    
+    private static void exportRenderTimings(boolean json) {
+        RenderInstrumentation.export(json);
+        ExportRecipeIdentifierToast.addToast(I18n.get("msg.rei.exported_render_timings"), I18n.get("msg.rei.exported_recipe.desc"));
+    }
+    
     @Override
     public void render(PoseStack poses, int mouseX, int mouseY, float delta) {
         renderDirtBackground(0);
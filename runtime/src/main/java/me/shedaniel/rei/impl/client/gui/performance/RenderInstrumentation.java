@@ -0,0 +1,333 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.gui.performance;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.client.config.ConfigObject;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Collects render timings of the overlay, the entry list and the favorites list while
+ * {@link ConfigObject#doDebugRenderTimeRequired()} is enabled.
+ * <p>
+ * Timings are kept in histograms with power of two nanosecond buckets, so recording a sample never allocates,
+ * and can be viewed in the {@link PerformanceScreen} or exported as CSV or JSON.
+ * All methods are expected to be called on the render thread.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class RenderInstrumentation {
+    private static final Histogram[] PHASES = createHistograms(Phase.values().length);
+    private static final Histogram[] SOURCES = createHistograms(Source.values().length);
+    private static final Object2LongMap<String> RENDERERS = new Object2LongOpenHashMap<>();
+    private static boolean enabled;
+    private static long since = System.currentTimeMillis();
+    
+    private RenderInstrumentation() {}
+    
+    public enum Phase {
+        BACKGROUND("Background"),
+        BASE("Base"),
+        OVERLAY("Overlay"),
+        TOOLTIP("Tooltip & Highlight"),
+        EXTRA("Extra"),
+        /**
+         * Entries that are not rendered in batches, these can only be timed as a whole.
+         */
+        UNBATCHED("Unbatched Entries");
+        
+        private final String name;
+        
+        Phase(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    public enum Source {
+        OVERLAY("Overlay"),
+        ENTRY_LIST("Entry List"),
+        FAVORITES("Favorites"),
+        LATE_RENDER("Late Render & Tooltips");
+        
+        private final String name;
+        
+        Source(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    /**
+     * Updates whether timings are collected, this is called once per frame before the overlay renders.
+     */
+    public static void beginFrame() {
+        enabled = ConfigObject.getInstance().doDebugRenderTimeRequired();
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Returns the start of a timed section, or {@code 0} if timings are not collected.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    public static void record(Phase phase, long start) {
+        if (enabled) {
+            PHASES[phase.ordinal()].add(System.nanoTime() - start);
+        }
+    }
+    
+    public static void recordNanos(Phase phase, long nanos) {
+        if (enabled) {
+            PHASES[phase.ordinal()].add(nanos);
+        }
+    }
+    
+    public static void record(Source source, long start) {
+        if (enabled) {
+            SOURCES[source.ordinal()].add(System.nanoTime() - start);
+        }
+    }
+    
+    public static void countRenderer(Object renderer, int entries) {
+        if (enabled && entries > 0) {
+            RENDERERS.mergeLong(renderer.getClass().getName(), entries, Long::sum);
+        }
+    }
+    
+    public static Histogram get(Phase phase) {
+        return PHASES[phase.ordinal()];
+    }
+    
+    public static Histogram get(Source source) {
+        return SOURCES[source.ordinal()];
+    }
+    
+    /**
+     * Returns the number of entries rendered by each renderer class, sorted by the most rendered first.
+     */
+    public static List<Map.Entry<String, Long>> getRendererCounts() {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>(RENDERERS.size());
+        for (Object2LongMap.Entry<String> entry : RENDERERS.object2LongEntrySet()) {
+            counts.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getLongValue()));
+        }
+        counts.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return counts;
+    }
+    
+    public static void reset() {
+        for (Histogram histogram : PHASES) histogram.reset();
+        for (Histogram histogram : SOURCES) histogram.reset();
+        RENDERERS.clear();
+        since = System.currentTimeMillis();
+    }
+    
+    public static String toCsv() {
+        StringBuilder builder = new StringBuilder("kind,name,samples,total_ns,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n");
+        for (Phase phase : Phase.values()) {
+            appendCsv(builder, "phase", phase.getName(), get(phase));
+        }
+        for (Source source : Source.values()) {
+            appendCsv(builder, "source", source.getName(), get(source));
+        }
+        for (Map.Entry<String, Long> entry : getRendererCounts()) {
+            builder.append("renderer,").append(entry.getKey()).append(',').append(entry.getValue()).append(",,,,,,\n");
+        }
+        return builder.toString();
+    }
+    
+    private static void appendCsv(StringBuilder builder, String kind, String name, Histogram histogram) {
+        builder.append(kind).append(",\"").append(name).append("\",")
+                .append(histogram.getCount()).append(',')
+                .append(histogram.getTotal()).append(',')
+                .append(histogram.getMean()).append(',')
+                .append(histogram.getPercentile(0.5)).append(',')
+                .append(histogram.getPercentile(0.9)).append(',')
+                .append(histogram.getPercentile(0.99)).append(',')
+                .append(histogram.getMax()).append('\n');
+    }
+    
+    public static String toJson() {
+        JsonObject object = new JsonObject();
+        object.addProperty("since", since);
+        object.addProperty("until", System.currentTimeMillis());
+        JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values()) {
+            phases.add(phase.getName(), get(phase).toJson());
+        }
+        object.add("phases", phases);
+        JsonObject sources = new JsonObject();
+        for (Source source : Source.values()) {
+            sources.add(source.getName(), get(source).toJson());
+        }
+        object.add("sources", sources);
+        JsonObject renderers = new JsonObject();
+        for (Map.Entry<String, Long> entry : getRendererCounts()) {
+            renderers.addProperty(entry.getKey(), entry.getValue());
+        }
+        object.add("renderers", renderers);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(object);
+    }
+    
+    /**
+     * Writes the collected timings to the {@code rei_exports} folder, the file is written off the render thread.
+     */
+    public static void export(boolean json) {
+        String content = json ? toJson() : toCsv();
+        File directory = new File(Minecraft.getInstance().gameDirectory, "rei_exports");
+        Util.ioPool().execute(() -> {
+            try {
+                directory.mkdirs();
+                File file = getExportFilename(directory, json ? ".json" : ".csv");
+                Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+                RoughlyEnoughItemsCore.LOGGER.info("Exported render timings to %s", file);
+            } catch (IOException e) {
+                RoughlyEnoughItemsCore.LOGGER.error("Failed to export render timings", e);
+            }
+        });
+    }
+    
+    private static File getExportFilename(File directory, String extension) {
+        String string = "render_timings_" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+        int i = 1;
+        
+        while (true) {
+            File file = new File(directory, string + (i == 1 ? "" : "_" + i) + extension);
+            if (!file.exists()) {
+                return file;
+            }
+            
+            ++i;
+        }
+    }
+    
+    private static Histogram[] createHistograms(int size) {
+        Histogram[] histograms = new Histogram[size];
+        for (int i = 0; i < size; i++) {
+            histograms[i] = new Histogram();
+        }
+        return histograms;
+    }
+    
+    /**
+     * A histogram of nanosecond samples, where bucket {@code i} holds the samples below {@code 2^i} nanoseconds.
+     */
+    public static final class Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long total;
+        private long max;
+        
+        private void add(long nanos) {
+            nanos = Math.max(0, nanos);
+            buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+        
+        private void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            total = 0;
+            max = 0;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getTotal() {
+            return total;
+        }
+        
+        public long getMax() {
+            return max;
+        }
+        
+        public long getMean() {
+            return count == 0 ? 0 : total / count;
+        }
+        
+        /**
+         * Returns the upper bound of the bucket containing the given percentile, capped by the largest sample.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) return 0;
+            long target = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(max, (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+        
+        private JsonObject toJson() {
+            JsonObject object = new JsonObject();
+            object.addProperty("samples", count);
+            object.addProperty("total_ns", total);
+            object.addProperty("mean_ns", getMean());
+            object.addProperty("p50_ns", getPercentile(0.5));
+            object.addProperty("p90_ns", getPercentile(0.9));
+            object.addProperty("p99_ns", getPercentile(0.99));
+            object.addProperty("max_ns", max);
+            JsonArray buckets = new JsonArray();
+            for (long bucket : this.buckets) {
+                buckets.add(bucket);
+            }
+            object.add("buckets", buckets);
+            return object;
+        }
+    }
+}
@@ -99,8 +99,11 @@ public class SubCategoryListEntry extends PerformanceScreen.PerformanceEntry imp
                 entry.render(matrices, -1, yy, x + 3 + 15, entryWidth - 15 - 3, entry.getItemHeight(), mouseX, mouseY, isHovered && this.getFocused() == entry, delta);
             }
         }
-        FormattedCharSequence timeText = PerformanceScreen.formatTime(totalTime, true);
-        Minecraft.getInstance().font.drawShadow(matrices, timeText, (float) x + entryWidth - 6 - 4 - Minecraft.getInstance().font.width(timeText), (float) (y + 6), -1);
+        // Negative times are used by categories which are not timed
+        if (totalTime >= 0) {
+            FormattedCharSequence timeText = PerformanceScreen.formatTime(totalTime, true);
+            Minecraft.getInstance().font.drawShadow(matrices, timeText, (float) x + entryWidth - 6 - 4 - Minecraft.getInstance().font.width(timeText), (float) (y + 6), -1);
+        }
     }
     
     @Override
@@ -23,7 +23,6 @@
 
 package me.shedaniel.rei.impl.client.gui.widget;
 
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterables;
 import com.mojang.blaze3d.vertex.PoseStack;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
@@ -32,12 +31,15 @@ import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.entry.renderer.BatchedEntryRenderer;
 import me.shedaniel.rei.api.client.entry.renderer.EntryRenderer;
 import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.client.gui.performance.RenderInstrumentation;
+import me.shedaniel.rei.impl.client.gui.performance.RenderInstrumentation.Phase;
 import me.shedaniel.rei.impl.client.util.CrashReportUtils;
 import net.minecraft.CrashReport;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.MultiBufferSource;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.mutable.MutableLong;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -47,6 +49,8 @@ public class BatchedEntryRendererManager {
     private boolean fastEntryRendering = ConfigObject.getInstance().doesFastEntryRendering();
     private Int2ObjectMap<List<Object>> grouping = new Int2ObjectOpenHashMap<>();
     private List<EntryWidget> toRender = new ArrayList<>();
+    @Nullable
+    private List<Batch> batches;
     
     public BatchedEntryRendererManager() {
     }
@@ -83,6 +87,7 @@ public class BatchedEntryRendererManager {
                         }
                         entries.add(widget);
                         entries.add(extraData);
+                        batches = null;
                         return;
                     }
                 }
@@ -95,35 +100,45 @@ public class BatchedEntryRendererManager {
         toRender.add(widget);
     }
     
+    public boolean isFastEntryRendering() {
+        return fastEntryRendering;
+    }
+    
     public void render(PoseStack matrices, int mouseX, int mouseY, float delta) {
         render(false, null, null, matrices, mouseX, mouseY, delta);
     }
     
+    /**
+     * Renders the added widgets. The widgets are only grouped into batches once, so a manager can be kept and rendered
+     * across frames for as long as its widgets and their stacks do not change.
+     */
     public void render(boolean debugTime, MutableInt size, MutableLong time, PoseStack matrices, int mouseX, int mouseY, float delta) {
         if (fastEntryRendering) {
+            for (Batch batch : getBatches()) {
+                renderBatched(debugTime, size, time, matrices, mouseX, mouseY, delta, batch.widgets(), batch.extraData());
+            }
+        }
+        if (!toRender.isEmpty()) {
+            renderSlow(debugTime, size, time, matrices, mouseX, mouseY, delta, toRender);
+        }
+    }
+    
+    private List<Batch> getBatches() {
+        List<Batch> batches = this.batches;
+        if (batches == null) {
+            batches = new ArrayList<>(grouping.size());
             for (List<Object> entries : grouping.values()) {
+                List<EntryWidget> widgets = new ArrayList<>(entries.size() / 2);
                 Object[] extraData = new Object[entries.size() / 2];
                 for (int i = 0; i < extraData.length; i++) {
+                    widgets.add((EntryWidget) entries.get(i * 2));
                     extraData[i] = entries.get(i * 2 + 1);
                 }
-                renderBatched(debugTime, size, time, matrices, mouseX, mouseY, delta, () -> new AbstractIterator<>() {
-                    public int i = 0;
-                    
-                    @Override
-                    protected EntryWidget computeNext() {
-                        if (i >= entries.size()) {
-                            return endOfData();
-                        }
-                        EntryWidget widget = (EntryWidget) entries.get(i);
-                        i += 2;
-                        return widget;
-                    }
-                }, extraData);
+                batches.add(new Batch(widgets, extraData));
             }
+            this.batches = batches;
         }
-        if (!toRender.isEmpty()) {
-            renderSlow(debugTime, size, time, matrices, mouseX, mouseY, delta, toRender);
-        }
+        return batches;
     }
     
     public static <T extends EntryWidget> void renderEntries(boolean debugTime, MutableInt size, MutableLong time, boolean fastEntryRendering, PoseStack matrices, int mouseX, int mouseY, float delta, Collection<T> entries) {
@@ -157,6 +172,8 @@ public class BatchedEntryRendererManager {
         long l = debugTime ? System.nanoTime() : 0;
         MultiBufferSource.BufferSource immediate = Minecraft.getInstance().renderBuffers().bufferSource();
         int i = 0;
+        boolean instrumented = RenderInstrumentation.isEnabled();
+        long phaseStart = RenderInstrumentation.start();
         for (T entry : entries) {
             try {
                 entry.drawBackground(matrices, mouseX, mouseY, delta);
@@ -166,6 +183,8 @@ public class BatchedEntryRendererManager {
                 throw CrashReportUtils.throwReport(report);
             }
         }
+        RenderInstrumentation.record(Phase.BACKGROUND, phaseStart);
+        phaseStart = RenderInstrumentation.start();
         firstRenderer.startBatch(first, extraData[0], matrices, delta);
         for (T entry : entries) {
             try {
@@ -182,6 +201,8 @@ public class BatchedEntryRendererManager {
         }
         immediate.endBatch();
         firstRenderer.afterBase(first, extraData[0], matrices, delta);
+        RenderInstrumentation.record(Phase.BASE, phaseStart);
+        phaseStart = RenderInstrumentation.start();
         i = 0;
         for (T entry : entries) {
             try {
@@ -195,19 +216,33 @@ public class BatchedEntryRendererManager {
             }
         }
         immediate.endBatch();
+        RenderInstrumentation.record(Phase.OVERLAY, phaseStart);
+        long tooltipNanos = 0, extraNanos = 0;
         for (T entry : entries) {
             try {
+                long entryStart = RenderInstrumentation.start();
                 if (entry.containsMouse(mouseX, mouseY)) {
                     entry.queueTooltip(matrices, mouseX, mouseY, delta);
                     entry.drawHighlighted(matrices, mouseX, mouseY, delta);
                 }
+                if (instrumented) {
+                    long now = System.nanoTime();
+                    tooltipNanos += now - entryStart;
+                    entryStart = now;
+                }
                 entry.drawExtra(matrices, mouseX, mouseY, delta);
+                if (instrumented) extraNanos += System.nanoTime() - entryStart;
             } catch (Throwable throwable) {
                 CrashReport report = CrashReportUtils.essential(throwable, "Rendering entry extra");
                 CrashReportUtils.renderer(report, entry);
                 throw CrashReportUtils.throwReport(report);
             }
         }
+        if (instrumented) {
+            RenderInstrumentation.recordNanos(Phase.TOOLTIP, tooltipNanos);
+            RenderInstrumentation.recordNanos(Phase.EXTRA, extraNanos);
+            RenderInstrumentation.countRenderer(firstRenderer, extraData.length);
+        }
         if (debugTime) time.add(System.nanoTime() - l);
         firstRenderer.endBatch(first, extraData[0], matrices, delta);
     }
@@ -217,11 +252,16 @@ public class BatchedEntryRendererManager {
             if (entry.getCurrentEntry().isEmpty())
                 continue;
             try {
-                if (debugTime) {
-                    size.increment();
+                if (debugTime || RenderInstrumentation.isEnabled()) {
                     long l = System.nanoTime();
                     entry.render(matrices, mouseX, mouseY, delta);
-                    time.add(System.nanoTime() - l);
+                    long entryTime = System.nanoTime() - l;
+                    RenderInstrumentation.recordNanos(Phase.UNBATCHED, entryTime);
+                    RenderInstrumentation.countRenderer(entry.getCurrentEntry().getRenderer(), 1);
+                    if (debugTime) {
+                        size.increment();
+                        time.add(entryTime);
+                    }
                 } else entry.render(matrices, mouseX, mouseY, delta);
             } catch (Throwable throwable) {
                 CrashReport report = CrashReportUtils.essential(throwable, "Rendering entry");
@@ -230,4 +270,6 @@ public class BatchedEntryRendererManager {
             }
         }
     }
+    
+    private record Batch(List<EntryWidget> widgets, Object[] extraData) {}
 }
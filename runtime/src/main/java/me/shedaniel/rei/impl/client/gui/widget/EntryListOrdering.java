@@ -0,0 +1,127 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.gui.widget;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import me.shedaniel.rei.api.client.gui.config.EntryPanelOrdering;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.client.search.SearchIndex;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The ordinals of all entries sorted by name or by group, sorted once per {@link SearchIndex} with precomputed sort keys,
+ * so the results of a search are put in order by walking the sorted ordinals instead of being sorted again.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+final class EntryListOrdering {
+    @Nullable
+    private static volatile EntryListOrdering nameOrdering, groupOrdering;
+    private final SearchIndex index;
+    private final int[] sortedOrdinals;
+    
+    private EntryListOrdering(SearchIndex index, int[] sortedOrdinals) {
+        this.index = index;
+        this.sortedOrdinals = sortedOrdinals;
+    }
+    
+    /**
+     * Sorts {@code list} by {@code ordering}, which must either be {@link EntryPanelOrdering#NAME} or {@link EntryPanelOrdering#GROUPS}.
+     * Lists with stacks that are not registered, or with duplicated stacks, are sorted with the comparators instead.
+     */
+    static void sort(List<EntryStack<?>> list, EntryPanelOrdering ordering) {
+        SearchIndex index = SearchIndex.getInstance();
+        if (index.size() == 0 || !get(index, ordering).apply(list)) {
+            list.sort(ordering == EntryPanelOrdering.NAME ? EntryListWidget.ENTRY_NAME_COMPARER : EntryListWidget.ENTRY_GROUP_COMPARER);
+        }
+    }
+    
+    private static EntryListOrdering get(SearchIndex index, EntryPanelOrdering ordering) {
+        boolean byName = ordering == EntryPanelOrdering.NAME;
+        EntryListOrdering listOrdering = byName ? nameOrdering : groupOrdering;
+        if (listOrdering == null || listOrdering.index != index) {
+            listOrdering = new EntryListOrdering(index, byName ? sortByName(index) : sortByGroup(index));
+            if (byName) {
+                nameOrdering = listOrdering;
+            } else {
+                groupOrdering = listOrdering;
+            }
+        }
+        return listOrdering;
+    }
+    
+    private boolean apply(List<EntryStack<?>> list) {
+        EntryStack<?>[] stacks = new EntryStack[index.size()];
+        for (EntryStack<?> stack : list) {
+            int ordinal = index.getOrdinal(stack);
+            if (ordinal < 0 || stacks[ordinal] != null) {
+                return false;
+            }
+            stacks[ordinal] = stack;
+        }
+        int i = 0;
+        for (int ordinal : sortedOrdinals) {
+            EntryStack<?> stack = stacks[ordinal];
+            if (stack != null) {
+                list.set(i++, stack);
+            }
+        }
+        return true;
+    }
+    
+    private static int[] sortByName(SearchIndex index) {
+        String[] names = new String[index.size()];
+        WorkerPool.invoke(() -> {
+            IntStream.range(0, names.length).parallel().forEach(ordinal -> names[ordinal] = EntryListWidget.getSortName(index.getStack(ordinal)));
+            return null;
+        });
+        int[] ordinals = IntStream.range(0, names.length).toArray();
+        // Equal names keep the registry order, like the stable sort of the comparator
+        IntArrays.quickSort(ordinals, (a, b) -> {
+            int compare = names[a].compareTo(names[b]);
+            return compare != 0 ? compare : Integer.compare(a, b);
+        });
+        return ordinals;
+    }
+    
+    private static int[] sortByGroup(SearchIndex index) {
+        int[] groups = new int[index.size()];
+        for (int ordinal = 0; ordinal < groups.length; ordinal++) {
+            groups[ordinal] = EntryListWidget.getSortGroup(index.getStack(ordinal));
+        }
+        int[] ordinals = IntStream.range(0, groups.length).toArray();
+        IntArrays.quickSort(ordinals, (a, b) -> {
+            int compare = Integer.compare(groups[a], groups[b]);
+            return compare != 0 ? compare : Integer.compare(a, b);
+        });
+        return ordinals;
+    }
+}
@@ -61,8 +61,11 @@ import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.impl.client.ClientHelperImpl;
 import me.shedaniel.rei.impl.client.config.ConfigManagerImpl;
 import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
+import me.shedaniel.rei.impl.client.entry.renderer.ItemIconAtlas;
 import me.shedaniel.rei.impl.client.gui.ScreenOverlayImpl;
+import me.shedaniel.rei.impl.client.gui.performance.RenderInstrumentation;
 import me.shedaniel.rei.impl.client.search.AsyncSearchManager;
+import net.minecraft.Util;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.client.player.LocalPlayer;
@@ -78,7 +81,9 @@ import net.minecraft.world.item.ItemStack;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -87,17 +92,11 @@ import java.util.stream.Stream;
 
 @ApiStatus.Internal
 public class EntryListWidget extends WidgetWithBounds implements OverlayListWidget, DraggableStackVisitorWidget {
-    static final Comparator<? super EntryStack<?>> ENTRY_NAME_COMPARER = Comparator.comparing(stack -> stack.asFormatStrippedText().getString());
-    static final Comparator<? super EntryStack<?>> ENTRY_GROUP_COMPARER = Comparator.comparingInt(stack -> {
-        if (stack.getType() == VanillaEntryTypes.ITEM) {
-            CreativeModeTab group = ((ItemStack) stack.getValue()).getItem().getItemCategory();
-            if (group != null)
-                return group.getId();
-        }
-        return Integer.MAX_VALUE;
-    });
+    static final Comparator<? super EntryStack<?>> ENTRY_NAME_COMPARER = Comparator.comparing(EntryListWidget::getSortName);
+    static final Comparator<? super EntryStack<?>> ENTRY_GROUP_COMPARER = Comparator.comparingInt(EntryListWidget::getSortGroup);
     private static final int SIZE = 18;
     private static final boolean LAZY = true;
+    private static final long EXCLUSION_ZONES_REFRESH_MILLIS = 50;
     private static int page;
     protected final ScrollingContainer scrolling = new ScrollingContainer() {
         @Override
@@ -118,8 +117,27 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
     private List<EntryListEntry> entries = Collections.emptyList();
     private List<Widget> renders = Collections.emptyList();
     private List<Widget> widgets = Collections.emptyList();
+    private final BitSet blockedSlots = new BitSet();
+    private long slotsKey = -1;
+    private long slotsTime;
+    @Nullable
+    private BatchedEntryRendererManager renderManager;
+    private List<EntryListEntry> renderedEntries;
     private AsyncSearchManager searchManager = AsyncSearchManager.createDefault();
     
+    static String getSortName(EntryStack<?> stack) {
+        return stack.asFormatStrippedText().getString();
+    }
+    
+    static int getSortGroup(EntryStack<?> stack) {
+        if (stack.getType() == VanillaEntryTypes.ITEM) {
+            CreativeModeTab group = ((ItemStack) stack.getValue()).getItem().getItemCategory();
+            if (group != null)
+                return group.getId();
+        }
+        return Integer.MAX_VALUE;
+    }
+    
     public static int entrySize() {
         return Mth.ceil(SIZE * ConfigObject.getInstance().getEntrySize());
     }
@@ -243,41 +261,57 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
         return Mth.ceil(allStacks.size() / (float) entries.size());
     }
     
+    private void renderEntries(PoseStack matrices, int mouseX, int mouseY, float delta, MutableInt size, MutableLong time) {
+        ItemIconAtlas.beginEntryPanel();
+        try {
+            renderManager.render(debugTime, size, time, matrices, mouseX, mouseY, delta);
+        } finally {
+            ItemIconAtlas.endEntryPanel();
+        }
+    }
+    
     @Override
     public void render(PoseStack matrices, int mouseX, int mouseY, float delta) {
         MutableInt size = new MutableInt();
         MutableLong time = new MutableLong();
         long totalTimeStart = debugTime ? System.nanoTime() : 0;
+        long instrumentationStart = RenderInstrumentation.start();
         boolean fastEntryRendering = ConfigObject.getInstance().doesFastEntryRendering();
         if (ConfigObject.getInstance().isEntryListWidgetScrolled()) {
             ScissorsHandler.INSTANCE.scissor(bounds);
             
             int skip = Math.max(0, Mth.floor(scrolling.scrollAmount / (float) entrySize()));
-            int nextIndex = skip * innerBounds.width / entrySize();
-            this.blockedCount = 0;
-            BatchedEntryRendererManager helper = new BatchedEntryRendererManager();
+            int width = innerBounds.width / entrySize();
+            boolean slotsChanged = updateSlots(skip, width);
             
-            int i = nextIndex;
-            for (int cont = nextIndex; cont < entries.size(); cont++) {
-                EntryListEntry entry = entries.get(cont);
-                Rectangle entryBounds = entry.getBounds();
-                
-                entryBounds.y = (int) (entry.backupY - scrolling.scrollAmount);
-                if (entryBounds.y > this.bounds.getMaxY()) break;
-                if (allStacks.size() <= i) break;
-                if (notSteppingOnExclusionZones(entryBounds.x, entryBounds.y, entryBounds.width, entryBounds.height, innerBounds)) {
-                    EntryStack<?> stack = allStacks.get(i++);
+            if (slotsChanged || !isRenderManagerValid(fastEntryRendering)) {
+                this.blockedCount = 0;
+                BatchedEntryRendererManager helper = new BatchedEntryRendererManager();
+                int i = skip * width;
+                int slot = 0;
+                for (; slot < entries.size(); slot++) {
+                    EntryListEntry entry = entries.get(slot);
+                    if (entry.getBounds().y > this.bounds.getMaxY()) break;
+                    if (allStacks.size() <= i) break;
                     entry.clearStacks();
-                    if (!stack.isEmpty()) {
-                        entry.entry(stack);
-                        helper.add(entry);
+                    if (!blockedSlots.get(slot)) {
+                        EntryStack<?> stack = allStacks.get(i++);
+                        if (!stack.isEmpty()) {
+                            entry.entry(stack);
+                            helper.add(entry);
+                        }
+                    } else {
+                        blockedCount++;
                     }
-                } else {
-                    blockedCount++;
                 }
+                for (; slot < entries.size(); slot++) {
+                    entries.get(slot).clearStacks();
+                }
+                this.renderManager = helper;
+                this.renderedEntries = entries;
             }
             
-            helper.render(debugTime, size, time, matrices, mouseX, mouseY, delta);
+            renderEntries(matrices, mouseX, mouseY, delta, size, time);
             
             updatePosition(delta);
             ScissorsHandler.INSTANCE.removeLastScissor();
@@ -288,8 +322,13 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
             for (Widget widget : renders) {
                 widget.render(matrices, mouseX, mouseY, delta);
             }
-            new BatchedEntryRendererManager(entries).render(debugTime, size, time, matrices, mouseX, mouseY, delta);
+            if (!isRenderManagerValid(fastEntryRendering)) {
+                this.renderManager = new BatchedEntryRendererManager(entries);
+                this.renderedEntries = entries;
+            }
+            renderEntries(matrices, mouseX, mouseY, delta, size, time);
         }
+        RenderInstrumentation.record(RenderInstrumentation.Source.ENTRY_LIST, instrumentationStart);
         
         if (debugTime) {
             long totalTime = System.nanoTime() - totalTimeStart;
@@ -340,6 +379,42 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
         }
     }
     
+    /**
+     * Returns whether the batches of the last frame can be rendered again, which is until the widgets are rebuilt.
+     */
+    private boolean isRenderManagerValid(boolean fastEntryRendering) {
+        return renderManager != null && renderedEntries == entries && renderManager.isFastEntryRendering() == fastEntryRendering;
+    }
+    
+    /**
+     * Moves the pooled widgets to the rows starting at {@code skip}, and checks which of them are stepping on exclusion zones.
+     * This is only redone when the rows have moved, or the exclusion zones may have changed since.
+     *
+     * @return whether the widgets have moved, or the slots stepping on exclusion zones have changed
+     */
+    private boolean updateSlots(int skip, int width) {
+        int entrySize = entrySize();
+        int firstRowY = (int) (innerBounds.y + skip * entrySize - scrolling.scrollAmount);
+        long key = ((long) skip << 32) | (firstRowY & 0xFFFFFFFFL);
+        long time = Util.getMillis();
+        if (key == slotsKey && time - slotsTime < EXCLUSION_ZONES_REFRESH_MILLIS) return false;
+        boolean moved = key != slotsKey;
+        BitSet lastBlockedSlots = moved ? null : (BitSet) blockedSlots.clone();
+        this.slotsKey = key;
+        this.slotsTime = time;
+        this.blockedSlots.clear();
+        for (int slot = 0; slot < entries.size(); slot++) {
+            EntryListEntry entry = entries.get(slot);
+            Rectangle entryBounds = entry.getBounds();
+            entry.backupY = innerBounds.y + (skip + slot / width) * entrySize;
+            entryBounds.y = (int) (entry.backupY - scrolling.scrollAmount);
+            if (!notSteppingOnExclusionZones(entryBounds.x, entryBounds.y, entryBounds.width, entryBounds.height, innerBounds)) {
+                blockedSlots.set(slot);
+            }
+        }
+        return moved || !blockedSlots.equals(lastBlockedSlots);
+    }
+    
     private int getScrollbarMinX() {
         if (ConfigObject.getInstance().isLeftHandSidePanel())
             return bounds.x + 1;
@@ -416,22 +491,16 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
         } else {
             page = 0;
             int width = innerBounds.width / entrySize;
-            int pageHeight = innerBounds.height / entrySize;
-            int slotsToPrepare = Math.max(allStacks.size() * 3, width * pageHeight * 3);
-            int currentX = 0;
-            int currentY = 0;
-            List<EntryListEntry> entries = Lists.newArrayList();
-            for (int i = 0; i < slotsToPrepare; i++) {
-                int xPos = currentX * entrySize + innerBounds.x;
-                int yPos = currentY * entrySize + innerBounds.y;
+            // Only the rows that fit in the bounds, and the partially visible rows, are backed by widgets, which are moved as the list scrolls
+            int rows = Math.max(0, (bounds.getMaxY() - innerBounds.y) / entrySize) + 2;
+            List<EntryListEntry> entries = Lists.newArrayListWithCapacity(width * rows);
+            for (int i = 0; i < width * rows; i++) {
+                int xPos = (i % width) * entrySize + innerBounds.x;
+                int yPos = (i / width) * entrySize + innerBounds.y;
                 entries.add((EntryListEntry) new EntryListEntry(xPos, yPos, entrySize).noBackground());
-                currentX++;
-                if (currentX >= width) {
-                    currentX = 0;
-                    currentY++;
-                }
             }
             this.entries = entries;
+            this.slotsKey = -1;
             this.widgets = Lists.newArrayList(renders);
             this.widgets.addAll(entries);
         }
@@ -451,23 +520,31 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
         Stopwatch stopwatch = Stopwatch.createStarted();
         if (ignoreLastSearch) searchManager.markDirty();
         searchManager.updateFilter(searchTerm);
-        if (searchManager.isDirty()) {
-            List<EntryStack<?>> list = searchManager.get();
-            EntryPanelOrdering ordering = ConfigObject.getInstance().getItemListOrdering();
-            if (ordering == EntryPanelOrdering.NAME)
-                list.sort(ENTRY_NAME_COMPARER);
-            if (ordering == EntryPanelOrdering.GROUPS)
-                list.sort(ENTRY_GROUP_COMPARER);
-            if (!ConfigObject.getInstance().isItemListAscending()) {
-                Collections.reverse(list);
-            }
-            allStacks = list;
-        }
         debugTime = ConfigObject.getInstance().doDebugRenderTimeRequired();
         FavoritesListWidget favorites = ScreenOverlayImpl.getFavoritesListWidget();
         if (favorites != null) {
             favorites.updateSearch();
         }
+        if (searchManager.isDirty()) {
+            // Without previous results, there is nothing to display while searching
+            if (allStacks != null && ConfigObject.getInstance().shouldAsyncSearch()) {
+                searchManager.getAsync(Minecraft.getInstance(), list -> applySearchResult(list, stopwatch));
+                return;
+            }
+            applySearchResult(searchManager.get(), stopwatch);
+        } else {
+            updateEntriesPosition();
+        }
+    }
+    
+    private void applySearchResult(List<EntryStack<?>> list, Stopwatch stopwatch) {
+        EntryPanelOrdering ordering = ConfigObject.getInstance().getItemListOrdering();
+        if (ordering == EntryPanelOrdering.NAME || ordering == EntryPanelOrdering.GROUPS)
+            EntryListOrdering.sort(list, ordering);
+        if (!ConfigObject.getInstance().isItemListAscending()) {
+            Collections.reverse(list);
+        }
+        allStacks = list;
         if (ConfigObject.getInstance().doDebugSearchTimeRequired()) {
             RoughlyEnoughItemsCore.LOGGER.info("Search Used: %s", stopwatch.stop().toString());
         }
@@ -527,10 +604,7 @@ public class EntryListWidget extends WidgetWithBounds implements OverlayListWidg
     @Override
     public Stream<EntryStack<?>> getEntries() {
         if (ConfigObject.getInstance().isEntryListWidgetScrolled()) {
-            int skip = Math.max(0, Mth.floor(scrolling.scrollAmount / (float) entrySize()));
-            int nextIndex = skip * innerBounds.width / entrySize();
             return (Stream<EntryStack<?>>) (Stream<? extends EntryStack<?>>) entries.stream()
-                    .skip(nextIndex)
                     .filter(entry -> entry.getBounds().y <= this.bounds.getMaxY())
                     .map(EntryWidget::getCurrentEntry)
                     .filter(Predicates.not(EntryStack::isEmpty));
@@ -57,6 +57,7 @@ import me.shedaniel.rei.api.common.util.ImmutableTextComponent;
 import me.shedaniel.rei.impl.client.config.ConfigManagerImpl;
 import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
 import me.shedaniel.rei.impl.client.favorites.FavoriteEntryTypeRegistryImpl;
+import me.shedaniel.rei.impl.client.gui.performance.RenderInstrumentation;
 import me.shedaniel.rei.impl.client.gui.widget.region.RealRegionEntry;
 import me.shedaniel.rei.impl.client.gui.widget.region.RegionDraggableStack;
 import me.shedaniel.rei.impl.client.gui.widget.region.RegionEntryListEntry;
@@ -253,6 +254,7 @@ public class FavoritesListWidget extends WidgetWithBounds implements DraggableSt
         if (fullBounds.isEmpty())
             return;
         
+        long instrumentationStart = RenderInstrumentation.start();
         this.trashBoundsHeight.update(delta);
         double trashBoundsHeight = this.trashBoundsHeight.value();
         if (Math.round(trashBoundsHeight) > 0) {
@@ -295,6 +297,7 @@ public class FavoritesListWidget extends WidgetWithBounds implements DraggableSt
         systemRegion.render(matrices, mouseX, mouseY, delta);
         region.render(matrices, mouseX, mouseY, delta);
         renderAddFavorite(matrices, mouseX, mouseY, delta);
+        RenderInstrumentation.record(RenderInstrumentation.Source.FAVORITES, instrumentationStart);
     }
     
     private void updateSystemRegion() {
@@ -24,6 +24,8 @@
 package me.shedaniel.rei.impl.client.registry.category;
 
 import dev.architectury.event.EventResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import me.shedaniel.rei.RoughlyEnoughItemsCore;
 import me.shedaniel.rei.api.client.plugins.REIClientPlugin;
 import me.shedaniel.rei.api.client.registry.category.ButtonArea;
@@ -33,6 +35,9 @@ import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
 import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryIngredients;
+import me.shedaniel.rei.api.common.util.EntryStacks;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.util.*;
@@ -43,6 +48,7 @@ public class CategoryRegistryImpl implements CategoryRegistry {
     private final Map<CategoryIdentifier<?>, Configuration<?>> categories = new LinkedHashMap<>();
     private final Map<CategoryIdentifier<?>, List<Consumer<CategoryConfiguration<?>>>> listeners = new HashMap<>();
     private final List<CategoryVisibilityPredicate> visibilityPredicates = new ArrayList<>();
+    private final Long2ObjectMap<Set<CategoryIdentifier<?>>> workstationCategories = new Long2ObjectOpenHashMap<>();
     
     @Override
     public void acceptPlugin(REIClientPlugin plugin) {
@@ -52,11 +58,14 @@ public class CategoryRegistryImpl implements CategoryRegistry {
     @Override
     public void startReload() {
         this.categories.clear();
+        synchronized (workstationCategories) {
+            this.workstationCategories.clear();
+        }
     }
     
     @Override
     public <T extends Display> void add(DisplayCategory<T> category, Consumer<CategoryConfiguration<T>> configurator) {
-        Configuration<T> configuration = new Configuration<>(category);
+        Configuration<T> configuration = new Configuration<>(this, category);
         this.categories.put(category.getCategoryIdentifier(), configuration);
         configurator.accept(configuration);
         
@@ -99,6 +108,35 @@ public class CategoryRegistryImpl implements CategoryRegistry {
         return categories.size();
     }
     
+    @Override
+    public Set<CategoryIdentifier<?>> getWorkstationCategories(EntryStack<?> stack) {
+        List<CategoryIdentifier<?>> candidates;
+        synchronized (workstationCategories) {
+            Set<CategoryIdentifier<?>> set = workstationCategories.get(EntryStacks.hashFuzzy(stack));
+            if (set == null) return Collections.emptySet();
+            candidates = new ArrayList<>(set);
+        }
+        Set<CategoryIdentifier<?>> categories = new LinkedHashSet<>();
+        for (CategoryIdentifier<?> categoryId : candidates) {
+            Configuration<?> configuration = this.categories.get(categoryId);
+            // Fuzzy hashes may collide, and categories may be replaced afterwards
+            if (configuration != null && configuration.isWorkstation(stack)) {
+                categories.add(categoryId);
+            }
+        }
+        return categories;
+    }
+    
+    private void indexWorkstations(CategoryIdentifier<?> categoryId, EntryIngredient... stations) {
+        synchronized (workstationCategories) {
+            for (EntryIngredient station : stations) {
+                for (EntryStack<?> stack : station) {
+                    workstationCategories.computeIfAbsent(EntryStacks.hashFuzzy(stack), hash -> new LinkedHashSet<>()).add(categoryId);
+                }
+            }
+        }
+    }
+    
     @Override
     public void registerVisibilityPredicate(CategoryVisibilityPredicate predicate) {
         visibilityPredicates.add(predicate);
@@ -127,18 +165,32 @@ public class CategoryRegistryImpl implements CategoryRegistry {
     }
     
     private static class Configuration<T extends Display> implements CategoryConfiguration<T> {
+        private final CategoryRegistryImpl registry;
         private final DisplayCategory<T> category;
         private final List<EntryIngredient> workstations = Collections.synchronizedList(new ArrayList<>());
         
         private Optional<ButtonArea> plusButtonArea = Optional.of(ButtonArea.defaultArea());
         
-        public Configuration(DisplayCategory<T> category) {
+        public Configuration(CategoryRegistryImpl registry, DisplayCategory<T> category) {
+            this.registry = registry;
             this.category = category;
         }
         
         @Override
         public void addWorkstations(EntryIngredient... stations) {
             this.workstations.addAll(Arrays.asList(stations));
+            this.registry.indexWorkstations(getCategoryIdentifier(), stations);
+        }
+        
+        private boolean isWorkstation(EntryStack<?> stack) {
+            synchronized (workstations) {
+                for (EntryIngredient ingredient : workstations) {
+                    if (EntryIngredients.testFuzzy(ingredient, stack)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         }
         
         @Override
@@ -0,0 +1,136 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.registry.display;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted indices from the fuzzy hashes of the input and output entries to the displays containing them,
+ * stored as positions in the display list of each category.
+ * <p>
+ * The index only narrows displays down to candidates, hash collisions are left to be confirmed with
+ * {@link EntryStacks#equalsFuzzy(EntryStack, EntryStack)}.
+ * <p>
+ * Displays are indexed from their {@link DisplaySignature}, so building the index never fills lazily referenced displays again.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public class DisplayIndex {
+    private final Map<CategoryIdentifier<?>, Postings> postings = new ConcurrentHashMap<>();
+    
+    public static DisplayIndex build(Map<CategoryIdentifier<?>, List<Display>> displays) {
+        DisplayIndex index = new DisplayIndex();
+        WorkerPool.invoke(() -> {
+            displays.entrySet().parallelStream().forEach(entry -> {
+                Postings postings = new Postings();
+                List<Display> categoryDisplays = entry.getValue();
+                for (int i = 0; i < categoryDisplays.size(); i++) {
+                    postings.add(DisplaySignature.of(categoryDisplays, i), i);
+                }
+                index.postings.put(entry.getKey(), postings);
+            });
+            return null;
+        });
+        return index;
+    }
+    
+    /**
+     * Indexes a display that was added to its category after the index was built.
+     */
+    public void add(CategoryIdentifier<?> categoryId, DisplaySignature signature, int position) {
+        postings.computeIfAbsent(categoryId, id -> new Postings()).add(signature, position);
+    }
+    
+    /**
+     * Returns the positions of the displays of {@code categoryId} which may output any of {@code recipesFor},
+     * or may take any of {@code usagesFor} as input.
+     */
+    public BitSet findCandidates(CategoryIdentifier<?> categoryId, LongCollection recipesFor, LongCollection usagesFor) {
+        BitSet candidates = new BitSet();
+        Postings postings = this.postings.get(categoryId);
+        if (postings != null) {
+            postings.collect(recipesFor, usagesFor, candidates);
+        }
+        return candidates;
+    }
+    
+    private static class Postings {
+        private final Long2ObjectMap<IntArrayList> inputs = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectMap<IntArrayList> outputs = new Long2ObjectOpenHashMap<>();
+        private final IntArrayList unindexed = new IntArrayList();
+        
+        private synchronized void add(DisplaySignature signature, int position) {
+            if (signature.inputs() == null || signature.outputs() == null) {
+                unindexed.add(position);
+                return;
+            }
+            index(inputs, signature.inputs(), position);
+            index(outputs, signature.outputs(), position);
+        }
+        
+        private static void index(Long2ObjectMap<IntArrayList> postings, long[] hashes, int position) {
+            for (long hash : hashes) {
+                IntArrayList list = postings.computeIfAbsent(hash, h -> new IntArrayList());
+                // Positions are added in ascending order, so duplicates can only be at the end
+                if (list.isEmpty() || list.getInt(list.size() - 1) != position) {
+                    list.add(position);
+                }
+            }
+        }
+        
+        private synchronized void collect(LongCollection recipesFor, LongCollection usagesFor, BitSet candidates) {
+            collect(outputs, recipesFor, candidates);
+            collect(inputs, usagesFor, candidates);
+            for (int i = 0; i < unindexed.size(); i++) {
+                candidates.set(unindexed.getInt(i));
+            }
+        }
+        
+        private static void collect(Long2ObjectMap<IntArrayList> postings, LongCollection hashes, BitSet candidates) {
+            for (long hash : hashes) {
+                IntArrayList list = postings.get(hash);
+                if (list != null) {
+                    for (int i = 0; i < list.size(); i++) {
+                        candidates.set(list.getInt(i));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.registry.display;
+
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.client.registry.display.DisplayRegistry;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The displays of a category in the {@link DisplayRegistryImpl}.
+ * <p>
+ * Plugins may still modify the list returned by {@link DisplayRegistry#get(CategoryIdentifier)}, so every modification
+ * is counted, which lets the caches keyed by the position of displays tell when positions may have shifted.
+ * <p>
+ * In the lazy display mode, displays filled from an origin are only softly referenced,
+ * so they can be released under memory pressure, and are filled again from their origin when accessed afterwards.
+ * Their {@link DisplaySignature} is kept, so they can be indexed without being filled again.
+ * Displays which fail to be filled again are skipped, {@link #get(int)} returns {@code null} for them.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public class DisplayList extends AbstractList<Display> implements RandomAccess {
+    private final List<Object> entries = new ArrayList<>();
+    private final AtomicInteger modifications;
+    private final Refiller refiller;
+    
+    public DisplayList(AtomicInteger modifications, Refiller refiller) {
+        this.modifications = modifications;
+        this.refiller = refiller;
+    }
+    
+    /**
+     * Adds a display which can be filled again as the display at {@code fillIndex} of those filled from {@code origin}.
+     */
+    public void addLazy(Display display, Object origin, int fillIndex) {
+        entries.add(new LazyDisplay(origin, fillIndex, display, DisplaySignature.of(display)));
+        modCount++;
+        modifications.incrementAndGet();
+    }
+    
+    /**
+     * Returns the display at {@code index}, or {@code null} if it has been released and could not be filled again.
+     */
+    @Override
+    @Nullable
+    public Display get(int index) {
+        Object entry = entries.get(index);
+        if (entry instanceof LazyDisplay lazyDisplay) {
+            return lazyDisplay.get(refiller);
+        }
+        return (Display) entry;
+    }
+    
+    /**
+     * Returns the display at {@code index}, or {@code null} if it has been released, without filling it again.
+     */
+    @Nullable
+    public Display getIfPresent(int index) {
+        Object entry = entries.get(index);
+        if (entry instanceof LazyDisplay lazyDisplay) {
+            return lazyDisplay.reference.get();
+        }
+        return (Display) entry;
+    }
+    
+    /**
+     * Returns the signature of the display at {@code index}, without filling it again if it has been released.
+     */
+    public DisplaySignature getSignature(int index) {
+        Object entry = entries.get(index);
+        if (entry instanceof LazyDisplay lazyDisplay) {
+            return lazyDisplay.signature;
+        }
+        return DisplaySignature.of((Display) entry);
+    }
+    
+    /**
+     * Releases the display at {@code index} if it is lazily referenced, as the garbage collector would under memory pressure.
+     */
+    void release(int index) {
+        if (entries.get(index) instanceof LazyDisplay lazyDisplay) {
+            lazyDisplay.reference.clear();
+        }
+    }
+    
+    @Override
+    public int size() {
+        return entries.size();
+    }
+    
+    @Override
+    public Display set(int index, Display element) {
+        Display previous = get(index);
+        entries.set(index, element);
+        // Replacing a display is not a structural modification, but the display at the position has changed
+        modifications.incrementAndGet();
+        return previous;
+    }
+    
+    @Override
+    public void add(int index, Display element) {
+        entries.add(index, element);
+        modCount++;
+        modifications.incrementAndGet();
+    }
+    
+    @Override
+    public Display remove(int index) {
+        Display previous = get(index);
+        entries.remove(index);
+        modCount++;
+        modifications.incrementAndGet();
+        return previous;
+    }
+    
+    @Override
+    public void clear() {
+        entries.clear();
+        modCount++;
+        modifications.incrementAndGet();
+    }
+    
+    @FunctionalInterface
+    public interface Refiller {
+        @Nullable
+        Display refill(Object origin, int fillIndex);
+    }
+    
+    private static class LazyDisplay {
+        private final Object origin;
+        private final int fillIndex;
+        private final DisplaySignature signature;
+        private volatile SoftReference<Display> reference;
+        private volatile boolean failed;
+        
+        private LazyDisplay(Object origin, int fillIndex, Display display, DisplaySignature signature) {
+            this.origin = origin;
+            this.fillIndex = fillIndex;
+            this.signature = signature;
+            this.reference = new SoftReference<>(display);
+        }
+        
+        @Nullable
+        private Display get(Refiller refiller) {
+            Display display = reference.get();
+            if (display != null || failed) return display;
+            synchronized (this) {
+                display = reference.get();
+                if (display == null && !failed) {
+                    display = refiller.refill(origin, fillIndex);
+                    if (display == null) {
+                        RoughlyEnoughItemsCore.LOGGER.error("Failed to fill display #%d again from %s, skipping it", fillIndex, origin);
+                        failed = true;
+                    } else {
+                        reference = new SoftReference<>(display);
+                    }
+                }
+                return display;
+            }
+        }
+    }
+}
@@ -24,8 +24,10 @@
 package me.shedaniel.rei.impl.client.registry.display;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import dev.architectury.event.EventResult;
 import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.plugins.REIClientPlugin;
 import me.shedaniel.rei.api.client.registry.category.CategoryRegistry;
 import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
@@ -36,6 +38,9 @@ import me.shedaniel.rei.api.client.registry.display.reason.DisplayAdditionReason
 import me.shedaniel.rei.api.client.registry.display.visibility.DisplayVisibilityPredicate;
 import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import me.shedaniel.rei.impl.client.view.ViewCache;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientPool;
 import me.shedaniel.rei.impl.common.registry.RecipeManagerContextImpl;
 import net.minecraft.world.item.crafting.Recipe;
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -43,9 +48,11 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugin> implements DisplayRegistry {
     private final WeakHashMap<Display, Object> displaysBase = new WeakHashMap<>();
@@ -53,8 +60,23 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     private final Map<CategoryIdentifier<?>, List<DynamicDisplayGenerator<?>>> displayGenerators = new ConcurrentHashMap<>();
     private final List<DynamicDisplayGenerator<?>> globalDisplayGenerators = new ArrayList<>();
     private final List<DisplayVisibilityPredicate> visibilityPredicates = new ArrayList<>();
+    private final DisplayVisibilityCache visibilityCache = new DisplayVisibilityCache();
     private final List<DisplayFiller<?>> fillers = new ArrayList<>();
+    private final Map<Class<?>, List<DisplayFiller<?>>> fillersByClass = new ConcurrentHashMap<>();
     private final MutableInt displayCount = new MutableInt(0);
+    private final AtomicInteger modifications = new AtomicInteger();
+    /**
+     * The {@link #modifications} of the display lists the display index and the visibility cache are up to date with.
+     */
+    private volatile int indexedModifications;
+    @Nullable
+    private volatile DisplayIndex displayIndex;
+    private final EntryIngredientPool ingredientPool = new EntryIngredientPool();
+    private boolean internIngredients = false;
+    private boolean lazyDisplays = false;
+    private final Object refillLock = new Object();
+    @Nullable
+    private EntryIngredientPool.Report ingredientReport;
     
     public DisplayRegistryImpl() {
         super(RecipeManagerContextImpl.supplier());
@@ -72,9 +94,37 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     
     @Override
     public void add(Display display, @Nullable Object origin) {
-        displays.computeIfAbsent(display.getCategoryIdentifier(), location -> new ArrayList<>())
-                .add(display);
+        add(display, origin, -1);
+    }
+    
+    /**
+     * Adds a display, which is the display at {@code fillIndex} of those filled from {@code origin} if it is not negative.
+     * Those displays are only softly referenced in the lazy display mode.
+     * All displays of a category are kept in a {@link DisplayList}, which counts the modifications made to it.
+     */
+    private void add(Display display, @Nullable Object origin, int fillIndex) {
+        if (internIngredients) {
+            ingredientPool.internAll(display.getInputEntries());
+            ingredientPool.internAll(display.getOutputEntries());
+        }
+        List<Display> categoryDisplays = displays.computeIfAbsent(display.getCategoryIdentifier(), location -> new DisplayList(modifications, this::refill));
+        int position = categoryDisplays.size();
+        int previousModifications = modifications.get();
+        if (lazyDisplays && origin != null && fillIndex >= 0 && categoryDisplays instanceof DisplayList displayList) {
+            displayList.addLazy(display, origin, fillIndex);
+        } else {
+            categoryDisplays.add(display);
+        }
         displayCount.increment();
+        DisplayIndex index = this.displayIndex;
+        if (index != null) {
+            index.add(display.getCategoryIdentifier(), DisplaySignature.of(categoryDisplays, position), position);
+            ViewCache.invalidate();
+        }
+        // Appending a display does not move the others, so the caches keyed by position stay up to date
+        if (indexedModifications == previousModifications) {
+            indexedModifications = modifications.get();
+        }
         if (origin != null) {
             synchronized (displaysBase) {
                 displaysBase.put(display, origin);
@@ -112,6 +162,31 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     public void registerVisibilityPredicate(DisplayVisibilityPredicate predicate) {
         visibilityPredicates.add(predicate);
         visibilityPredicates.sort(Comparator.reverseOrder());
+        visibilityCache.update(visibilityPredicates);
+        ViewCache.invalidate();
+    }
+    
+    @Override
+    public void invalidateDisplayVisibility() {
+        visibilityCache.invalidate();
+        ViewCache.invalidate();
+    }
+    
+    /**
+     * Returns whether the registered display at {@code position} of the displays of its category is visible,
+     * which is cached until the visibility predicates declare that it may change.
+     */
+    public boolean isDisplayVisible(Display display, int position) {
+        validatePositions();
+        return visibilityCache.test(display.getCategoryIdentifier(), position, display, this::isDisplayVisible);
+    }
+    
+    /**
+     * Returns whether the visibility of displays only changes on the triggers declared by the visibility predicates,
+     * which is not the case if any of them is {@link DisplayVisibilityPredicate.Stability#VOLATILE}.
+     */
+    public boolean isDisplayVisibilityStable() {
+        return visibilityCache.isEnabled();
     }
     
     @Override
@@ -139,17 +214,20 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     
     @Override
     public <T, D extends Display> void registerFiller(Class<T> typeClass, Predicate<? extends T> predicate, Function<? extends T, D> filler) {
-        registerFiller(o -> typeClass.isInstance(o) && ((Predicate<T>) predicate).test((T) o), o -> ((Function<T, D>) filler).apply((T) o));
+        fillers.add(new DisplayFiller<>(typeClass, (o, s) -> typeClass.isInstance(o) && ((Predicate<Object>) predicate).test(o), (Function<Object, D>) filler));
+        fillersByClass.clear();
     }
     
     @Override
     public <T, D extends Display> void registerFiller(Class<T> typeClass, BiPredicate<? extends T, DisplayAdditionReasons> predicate, Function<? extends T, D> filler) {
-        fillers.add(new DisplayFiller<>((o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, D>) filler));
+        fillers.add(new DisplayFiller<>(typeClass, (o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, D>) filler));
+        fillersByClass.clear();
     }
     
     @Override
     public <D extends Display> void registerFiller(Predicate<?> predicate, Function<?, D> filler) {
-        fillers.add(new DisplayFiller<>((o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, D>) filler));
+        fillers.add(new DisplayFiller<>(null, (o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, D>) filler));
+        fillersByClass.clear();
     }
     
     @Override
@@ -158,19 +236,101 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         this.displays.clear();
         this.displayGenerators.clear();
         this.visibilityPredicates.clear();
+        this.visibilityCache.update(visibilityPredicates);
         this.fillers.clear();
+        this.fillersByClass.clear();
         this.displayCount.setValue(0);
+        this.displayIndex = null;
+        this.indexedModifications = modifications.get();
+        this.ingredientPool.clear();
+        this.internIngredients = true;
+        this.lazyDisplays = ConfigObject.getInstance().isLazyRecipeDisplaysEnabled();
+        ViewCache.invalidate();
     }
     
     @Override
     public void endReload() {
         if (!fillers.isEmpty()) {
-            List<Recipe<?>> allSortedRecipes = getAllSortedRecipes();
-            for (int i = allSortedRecipes.size() - 1; i >= 0; i--) {
-                Recipe<?> recipe = allSortedRecipes.get(i);
-                addWithReason(recipe, DisplayAdditionReason.RECIPE_MANAGER);
+            List<Recipe<?>> recipes = Lists.reverse(getAllSortedRecipes());
+            if (ConfigObject.getInstance().doesFillDisplaysInParallel()) {
+                // Filling is independent for every recipe, the displays are then added in the recipe order
+                List<Collection<Display>> filledDisplays = WorkerPool.invoke(() -> recipes.parallelStream()
+                        .map(recipe -> tryFillDisplay(recipe, DisplayAdditionReason.RECIPE_MANAGER))
+                        .collect(Collectors.toList()));
+                for (int i = 0; i < recipes.size(); i++) {
+                    int fillIndex = 0;
+                    for (Display display : filledDisplays.get(i)) {
+                        add(display, recipes.get(i), fillIndex++);
+                    }
+                }
+            } else {
+                for (Recipe<?> recipe : recipes) {
+                    int fillIndex = 0;
+                    for (Display display : tryFillDisplay(recipe, DisplayAdditionReason.RECIPE_MANAGER)) {
+                        add(display, recipe, fillIndex++);
+                    }
+                }
             }
         }
+        
+        // Ingredient values are only interned while reloading, so the pool does not outlive it
+        this.ingredientReport = ingredientPool.getReport();
+        this.ingredientPool.clear();
+        this.internIngredients = false;
+        RoughlyEnoughItemsCore.LOGGER.info("Shared the values of %d of %d display ingredient stacks between %d unique values, saving about %d KB",
+                ingredientReport.internedValues(), ingredientReport.stacks(), ingredientReport.uniqueValues(), ingredientReport.estimatedBytesSaved() / 1024);
+        
+        int modifications = this.modifications.get();
+        this.displayIndex = DisplayIndex.build(displays);
+        this.visibilityCache.invalidate();
+        this.indexedModifications = modifications;
+        ViewCache.invalidate();
+    }
+    
+    /**
+     * Returns how many times the display lists have been modified, which changes whenever a display is added,
+     * removed or replaced, including modifications by plugins through the lists returned by {@link #get(CategoryIdentifier)}.
+     */
+    public int getModificationCount() {
+        return modifications.get();
+    }
+    
+    /**
+     * Rebuilds the display index and invalidates the visibility cache if the display lists have been modified
+     * other than by appending displays, since the positions they are keyed by may have shifted.
+     */
+    private void validatePositions() {
+        if (indexedModifications == modifications.get()) return;
+        synchronized (modifications) {
+            int modifications = this.modifications.get();
+            if (indexedModifications != modifications) {
+                if (this.displayIndex != null) {
+                    this.displayIndex = DisplayIndex.build(displays);
+                }
+                this.visibilityCache.invalidate();
+                this.indexedModifications = modifications;
+                ViewCache.invalidate();
+            }
+        }
+    }
+    
+    /**
+     * Returns how many values of display ingredient stacks were shared during the last reload,
+     * or {@code null} if no reload has finished yet.
+     */
+    @Nullable
+    public EntryIngredientPool.Report getIngredientReport() {
+        return ingredientReport;
+    }
+    
+    /**
+     * Returns the index of the input and output entries of the registered displays,
+     * or {@code null} if it has not been built since the last reload.
+     */
+    @Nullable
+    public DisplayIndex getDisplayIndex() {
+        validatePositions();
+        return displayIndex;
     }
     
     @Override
@@ -178,7 +338,7 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         if (value instanceof Display) return Collections.singleton((Display) value);
         List<Display> displays = null;
         DisplayAdditionReasons reasons = reason.length == 0 ? DisplayAdditionReasons.Impl.EMPTY : new DisplayAdditionReasons.Impl(reason);
-        for (DisplayFiller<?> filler : fillers) {
+        for (DisplayFiller<?> filler : getFillers(value.getClass())) {
             Display display = tryFillDisplayGenerics(filler, value, reasons);
             if (display != null) {
                 if (displays == null) displays = Collections.singletonList(display);
@@ -206,6 +366,50 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         return null;
     }
     
+    /**
+     * Fills the display at {@code fillIndex} of those filled from {@code origin} again, after it has been released.
+     * Displays are read from the worker pool as well, so fillers are only run one at a time unless they are allowed to fill displays in parallel.
+     */
+    @Nullable
+    private Display refill(Object origin, int fillIndex) {
+        if (ConfigObject.getInstance().doesFillDisplaysInParallel()) {
+            return fillAgain(origin, fillIndex);
+        }
+        synchronized (refillLock) {
+            return fillAgain(origin, fillIndex);
+        }
+    }
+    
+    @Nullable
+    private Display fillAgain(Object origin, int fillIndex) {
+        int index = 0;
+        for (Display display : tryFillDisplay(origin, DisplayAdditionReason.RECIPE_MANAGER)) {
+            if (index++ == fillIndex) {
+                synchronized (displaysBase) {
+                    displaysBase.put(display, origin);
+                }
+                return display;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the fillers which may accept values of {@code valueClass}, in the order they were registered.
+     * Fillers registered for a type are skipped for values which are not instances of it.
+     */
+    private List<DisplayFiller<?>> getFillers(Class<?> valueClass) {
+        return fillersByClass.computeIfAbsent(valueClass, c -> {
+            List<DisplayFiller<?>> classFillers = new ArrayList<>();
+            for (DisplayFiller<?> filler : fillers) {
+                if (filler.typeClass() == null || filler.typeClass().isAssignableFrom(c)) {
+                    classFillers.add(filler);
+                }
+            }
+            return classFillers;
+        });
+    }
+    
     @Override
     @Nullable
     public Object getDisplayOrigin(Display display) {
@@ -213,6 +417,8 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     }
     
     private static record DisplayFiller<D extends Display>(
+            @Nullable Class<?> typeClass,
+            
             BiPredicate<Object, DisplayAdditionReasons> predicate,
             
             Function<Object, D> mappingFunction
@@ -0,0 +1,99 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.registry.display;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fuzzy hashes of the entries of a display, which the display indices are built from.
+ * <p>
+ * Lazily referenced displays keep their signature, so indexing them never fills them again.
+ *
+ * @param inputs       the hashes of the input entries, or {@code null} if they could not be hashed
+ * @param outputs      the hashes of the output entries, or {@code null} if they could not be hashed
+ * @param requirements the hashes accepted by each non-empty slot of the required entries, or {@code null} if they could not be hashed
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public record DisplaySignature(@Nullable long[] inputs, @Nullable long[] outputs, @Nullable long[][] requirements) {
+    public static DisplaySignature of(Display display) {
+        long[] inputs = null, outputs = null;
+        try {
+            inputs = hash(display.getInputEntries());
+            outputs = hash(display.getOutputEntries());
+        } catch (Throwable throwable) {
+            RoughlyEnoughItemsCore.LOGGER.warn("Failed to index display " + display + ", it will always be checked for recipes and usages", throwable);
+        }
+        return new DisplaySignature(inputs, outputs, hashRequirements(display));
+    }
+    
+    /**
+     * Returns the signature of the display at {@code index} of {@code displays}, without filling it again if it has been released.
+     */
+    public static DisplaySignature of(List<Display> displays, int index) {
+        return displays instanceof DisplayList displayList ? displayList.getSignature(index) : of(displays.get(index));
+    }
+    
+    private static long[] hash(List<EntryIngredient> ingredients) {
+        LongSet hashes = new LongOpenHashSet();
+        for (EntryIngredient ingredient : ingredients) {
+            for (EntryStack<?> stack : ingredient) {
+                hashes.add(EntryStacks.hashFuzzy(stack));
+            }
+        }
+        return hashes.toLongArray();
+    }
+    
+    @Nullable
+    private static long[][] hashRequirements(Display display) {
+        try {
+            List<long[]> slots = new ArrayList<>();
+            for (EntryIngredient ingredient : display.getRequiredEntries()) {
+                if (ingredient.isEmpty()) continue;
+                LongSet hashes = new LongOpenHashSet(ingredient.size());
+                for (EntryStack<?> stack : ingredient) {
+                    hashes.add(EntryStacks.hashFuzzy(stack));
+                }
+                slots.add(hashes.toLongArray());
+            }
+            return slots.toArray(new long[0][]);
+        } catch (Throwable throwable) {
+            RoughlyEnoughItemsCore.LOGGER.warn("Failed to index the requirements of display " + display, throwable);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.registry.display;
+
+import me.shedaniel.rei.api.client.registry.display.visibility.DisplayVisibilityPredicate;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Caches the visibility of the registered displays by their position in the display list of each category.
+ * The cache is only used when none of the visibility predicates are {@link DisplayVisibilityPredicate.Stability#VOLATILE},
+ * and is invalidated according to the triggers the predicates declare.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public class DisplayVisibilityCache {
+    private static final AtomicInteger CONFIG_GENERATION = new AtomicInteger();
+    private final Map<CategoryIdentifier<?>, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private volatile boolean configDependent;
+    private volatile boolean levelDependent;
+    private volatile int configGeneration = CONFIG_GENERATION.get();
+    private volatile WeakReference<Object> level = new WeakReference<>(null);
+    
+    /**
+     * Invalidates the caches depending on the config, called whenever the config is saved.
+     */
+    public static void invalidateConfig() {
+        CONFIG_GENERATION.incrementAndGet();
+    }
+    
+    /**
+     * Updates when this cache is invalidated from the stability of {@code predicates}, and invalidates it.
+     */
+    public void update(List<DisplayVisibilityPredicate> predicates) {
+        boolean enabled = true, configDependent = false, levelDependent = false;
+        for (DisplayVisibilityPredicate predicate : predicates) {
+            switch (predicate.getStability()) {
+                case CONFIG -> configDependent = true;
+                case LEVEL -> levelDependent = true;
+                case VOLATILE -> enabled = false;
+            }
+        }
+        this.enabled = enabled;
+        this.configDependent = configDependent;
+        this.levelDependent = levelDependent;
+        invalidate();
+    }
+    
+    public void invalidate() {
+        entries.clear();
+    }
+    
+    /**
+     * Returns whether none of the visibility predicates are {@link DisplayVisibilityPredicate.Stability#VOLATILE},
+     * in which case the visibility of displays is cached.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Returns the visibility of {@code display} at {@code position} of the displays of {@code categoryId},
+     * testing it against {@code visibility} if it is not cached.
+     */
+    public boolean test(CategoryIdentifier<?> categoryId, int position, Display display, Predicate<Display> visibility) {
+        if (!enabled) {
+            return visibility.test(display);
+        }
+        checkTriggers();
+        Entry entry = entries.computeIfAbsent(categoryId, id -> new Entry());
+        synchronized (entry) {
+            if (entry.evaluated.get(position)) {
+                return entry.visible.get(position);
+            }
+        }
+        boolean visible = visibility.test(display);
+        synchronized (entry) {
+            entry.evaluated.set(position);
+            entry.visible.set(position, visible);
+        }
+        return visible;
+    }
+    
+    private void checkTriggers() {
+        if (configDependent) {
+            int generation = CONFIG_GENERATION.get();
+            if (configGeneration != generation) {
+                configGeneration = generation;
+                invalidate();
+            }
+        }
+        if (levelDependent) {
+            Object level = Minecraft.getInstance().level;
+            if (this.level.get() != level) {
+                this.level = new WeakReference<>(level);
+                invalidate();
+            }
+        }
+    }
+    
+    private static class Entry {
+        private final BitSet evaluated = new BitSet();
+        private final BitSet visible = new BitSet();
+    }
+}
@@ -26,6 +26,7 @@ package me.shedaniel.rei.impl.client.search;
 import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
 import me.shedaniel.rei.api.client.config.ConfigManager;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.registry.entry.EntryRegistry;
@@ -35,25 +36,35 @@ import me.shedaniel.rei.api.client.view.Views;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 public class AsyncSearchManager {
+    private static final int HISTORY_SIZE = 16;
     private final Supplier<List<EntryStack<?>>> stacksProvider;
     private final Supplier<Predicate<EntryStack<?>>> additionalPredicateSupplier;
     private final UnaryOperator<EntryStack<?>> transformer;
+    private final Deque<SearchHistoryEntry> history = new ArrayDeque<>();
+    private final AtomicLong generation = new AtomicLong();
     private Predicate<EntryStack<?>> additionalPredicate;
     private SearchFilter filter;
-    private boolean dirty = false;
+    private boolean dirty = true;
     private List<EntryStack<?>> last;
+    @Nullable
+    private CompletableFuture<?> running;
     
     public AsyncSearchManager(Supplier<List<EntryStack<?>>> stacksProvider, Supplier<Predicate<EntryStack<?>>> additionalPredicateSupplier, UnaryOperator<EntryStack<?>> transformer) {
         this.stacksProvider = stacksProvider;
@@ -75,66 +86,215 @@ public class AsyncSearchManager {
     }
     
     public void markDirty() {
-        this.dirty = true;
+        synchronized (history) {
+            cancel();
+            this.dirty = true;
+            this.additionalPredicate = null;
+            this.history.clear();
+        }
     }
     
     public void updateFilter(String filter) {
         if (this.filter == null || !this.filter.getFilter().equals(filter)) {
-            this.filter = SearchProvider.getInstance().createFilter(filter);
-            markDirty();
+            synchronized (history) {
+                cancel();
+                this.filter = SearchProvider.getInstance().createFilter(filter);
+                this.dirty = true;
+            }
+        }
+    }
+    
+    /**
+     * Invalidates the search in progress, its partitions will stop at the next entry,
+     * and its results will never be published.
+     */
+    private void cancel() {
+        generation.incrementAndGet();
+        if (running != null) {
+            running.cancel(false);
+            running = null;
         }
     }
     
     public boolean isDirty() {
-        return last == null || dirty;
+        return dirty;
     }
     
     public List<EntryStack<?>> get() {
         if (isDirty()) {
-            this.additionalPredicate = additionalPredicateSupplier.get();
-            int searchPartitionSize = ConfigObject.getInstance().getAsyncSearchPartitionSize();
-            List<EntryStack<?>> stacks = stacksProvider.get();
-            last = new ArrayList<>();
+            cancel();
+            long generation = this.generation.get();
+            SearchFilter filter = this.filter;
+            Predicate<EntryStack<?>> additionalPredicate = prepareAdditionalPredicate();
+            SearchHistoryEntry lastEntry = findHistoryEntry(filter);
+            List<EntryStack<?>> matched;
             
-            if (!stacks.isEmpty()) {
-                if (ConfigObject.getInstance().shouldAsyncSearch() && stacks.size() > searchPartitionSize * 4) {
-                    List<CompletableFuture<List<EntryStack<?>>>> futures = Lists.newArrayList();
-                    for (Iterable<EntryStack<?>> partitionStacks : CollectionUtils.partition(stacks, searchPartitionSize)) {
-                        futures.add(CompletableFuture.supplyAsync(() -> {
-                            List<EntryStack<?>> filtered = Lists.newArrayList();
-                            for (EntryStack<?> stack : partitionStacks) {
-                                if (stack != null && matches(stack) && additionalPredicate.test(stack)) {
-                                    filtered.add(transformer.apply(stack));
-                                }
-                            }
-                            return filtered;
-                        }));
-                    }
-                    try {
-                        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
-                    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                        e.printStackTrace();
-                    }
-                    for (CompletableFuture<List<EntryStack<?>>> future : futures) {
-                        List<EntryStack<?>> now = future.getNow(null);
-                        if (now != null) last.addAll(now);
-                    }
-                } else {
-                    for (EntryStack<?> stack : stacks) {
-                        if (matches(stack) && additionalPredicate.test(stack)) {
-                            last.add(transformer.apply(stack));
-                        }
-                    }
-                }
+            if (lastEntry != null && lastEntry.filter.getFilter().equals(filter.getFilter())) {
+                matched = lastEntry.matched;
+            } else {
+                matched = search(lastEntry != null ? lastEntry.matched : stacksProvider.get(), filter, additionalPredicate, generation, false).join();
+                pushHistory(new SearchHistoryEntry(filter, matched), generation);
             }
             
+            last = transform(matched);
             dirty = false;
         }
         
         return last;
     }
     
+    /**
+     * Starts searching in the background, the previous results are kept until {@code consumer} is
+     * called on {@code executor} with the new results. A newer call to {@link #updateFilter(String)}
+     * or {@link #markDirty()} cancels the search, and {@code consumer} will not be called.
+     */
+    public CompletableFuture<Void> getAsync(Executor executor, Consumer<List<EntryStack<?>>> consumer) {
+        cancel();
+        long generation = this.generation.get();
+        SearchFilter filter = this.filter;
+        Predicate<EntryStack<?>> additionalPredicate = prepareAdditionalPredicate();
+        SearchHistoryEntry lastEntry = findHistoryEntry(filter);
+        dirty = false;
+        
+        if (lastEntry != null && lastEntry.filter.getFilter().equals(filter.getFilter())) {
+            last = transform(lastEntry.matched);
+            consumer.accept(last);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        List<EntryStack<?>> stacks = lastEntry != null ? lastEntry.matched : stacksProvider.get();
+        CompletableFuture<Void> future = search(stacks, filter, additionalPredicate, generation, true)
+                .thenApply(matched -> {
+                    pushHistory(new SearchHistoryEntry(filter, matched), generation);
+                    return transform(matched);
+                })
+                .thenAcceptAsync(result -> {
+                    if (this.generation.get() == generation) {
+                        running = null;
+                        last = result;
+                        consumer.accept(result);
+                    }
+                }, executor);
+        future.whenComplete((unused, throwable) -> {
+            if (throwable != null && !(throwable instanceof CancellationException) && !(throwable.getCause() instanceof CancellationException)) {
+                RoughlyEnoughItemsCore.LOGGER.error("Failed to search entries!", throwable);
+            }
+        });
+        running = future;
+        return future;
+    }
+    
+    private Predicate<EntryStack<?>> prepareAdditionalPredicate() {
+        if (additionalPredicate == null) {
+            this.additionalPredicate = additionalPredicateSupplier.get();
+        }
+        return additionalPredicate;
+    }
+    
+    private List<EntryStack<?>> transform(List<EntryStack<?>> matched) {
+        List<EntryStack<?>> transformed = new ArrayList<>(matched.size());
+        for (EntryStack<?> stack : matched) {
+            transformed.add(transformer.apply(stack));
+        }
+        return transformed;
+    }
+    
+    private CompletableFuture<List<EntryStack<?>>> search(List<EntryStack<?>> stacks, SearchFilter filter, Predicate<EntryStack<?>> additionalPredicate, long generation, boolean background) {
+        if (stacks.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        // The filter is prepared once per search, before the stacks are partitioned
+        if (background) {
+            return CompletableFuture.supplyAsync(() -> prepare(filter), WorkerPool.getExecutor())
+                    .thenCompose(predicate -> searchPartitioned(stacks, predicate, additionalPredicate, generation));
+        }
+        return searchPartitioned(stacks, prepare(filter), additionalPredicate, generation);
+    }
+    
+    private CompletableFuture<List<EntryStack<?>>> searchPartitioned(List<EntryStack<?>> stacks, Predicate<EntryStack<?>> filter, Predicate<EntryStack<?>> additionalPredicate, long generation) {
+        int searchPartitionSize = ConfigObject.getInstance().getAsyncSearchPartitionSize();
+        if (ConfigObject.getInstance().shouldAsyncSearch() && stacks.size() > searchPartitionSize * 4) {
+            List<CompletableFuture<List<EntryStack<?>>>> futures = Lists.newArrayList();
+            for (Iterable<EntryStack<?>> partitionStacks : CollectionUtils.partition(stacks, searchPartitionSize)) {
+                futures.add(CompletableFuture.supplyAsync(() -> search(partitionStacks, filter, additionalPredicate, generation), WorkerPool.getExecutor()));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(unused -> {
+                List<EntryStack<?>> matched = new ArrayList<>();
+                for (CompletableFuture<List<EntryStack<?>>> future : futures) {
+                    matched.addAll(future.join());
+                }
+                return matched;
+            });
+        } else {
+            // Background searches are already running on a worker after preparing the filter
+            return CompletableFuture.completedFuture(search(stacks, filter, additionalPredicate, generation));
+        }
+    }
+    
+    private static Predicate<EntryStack<?>> prepare(SearchFilter filter) {
+        return filter instanceof SearchProviderImpl.SearchFilterImpl impl ? impl.prepare() : filter;
+    }
+    
+    private List<EntryStack<?>> search(Iterable<EntryStack<?>> stacks, Predicate<EntryStack<?>> filter, Predicate<EntryStack<?>> additionalPredicate, long generation) {
+        List<EntryStack<?>> filtered = Lists.newArrayList();
+        for (EntryStack<?> stack : stacks) {
+            if (this.generation.get() != generation) {
+                throw new CancellationException();
+            }
+            if (stack != null && filter.test(stack) && additionalPredicate.test(stack)) {
+                filtered.add(stack);
+            }
+        }
+        return filtered;
+    }
+    
+    /**
+     * Finds the most recent search whose results contain every result of {@code filter},
+     * preferring an exact match of the filter, so backspacing does not search again.
+     */
+    @Nullable
+    private SearchHistoryEntry findHistoryEntry(SearchFilter filter) {
+        synchronized (history) {
+            for (SearchHistoryEntry entry : history) {
+                if (entry.filter.getFilter().equals(filter.getFilter())) {
+                    return entry;
+                }
+            }
+            if (filter instanceof SearchProviderImpl.SearchFilterImpl impl) {
+                for (SearchHistoryEntry entry : history) {
+                    if (impl.isRefinementOf(entry.filter)) {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+    
+    private void pushHistory(SearchHistoryEntry entry, long generation) {
+        synchronized (history) {
+            if (this.generation.get() != generation) {
+                throw new CancellationException();
+            }
+            history.addFirst(entry);
+            while (history.size() > HISTORY_SIZE) {
+                history.removeLast();
+            }
+        }
+    }
+    
     public boolean matches(EntryStack<?> stack) {
         return filter.test(stack);
     }
+    
+    private static class SearchHistoryEntry {
+        private final SearchFilter filter;
+        private final List<EntryStack<?>> matched;
+        
+        private SearchHistoryEntry(SearchFilter filter, List<EntryStack<?>> matched) {
+            this.filter = filter;
+            this.matched = matched;
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.search;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An inverted index from every trigram of a column of text to the ordinals of the entries containing it.
+ * <p>
+ * Any text containing a search term also contains every trigram of it, so intersecting the posting lists of
+ * the trigrams of a term gives a small set of candidates, which still have to be verified with {@code contains}.
+ * Entries without text are always candidates, since argument types may match them regardless of the term.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class NGramIndex {
+    public static final int N = 3;
+    private static final int[] EMPTY = new int[0];
+    private final Long2ObjectMap<int[]> postings;
+    private final BitSet unindexed;
+    
+    private NGramIndex(Long2ObjectMap<int[]> postings, BitSet unindexed) {
+        this.postings = postings;
+        this.unindexed = unindexed;
+    }
+    
+    public static NGramIndex build(Object[] column) {
+        Long2ObjectMap<IntArrayList> postings = new Long2ObjectOpenHashMap<>();
+        BitSet unindexed = new BitSet(column.length);
+        LongSet grams = new LongOpenHashSet();
+        
+        for (int ordinal = 0; ordinal < column.length; ordinal++) {
+            if (!(column[ordinal] instanceof String text) || text.isEmpty()) {
+                unindexed.set(ordinal);
+                continue;
+            }
+            grams.clear();
+            for (int i = 0; i + N <= text.length(); i++) {
+                grams.add(gram(text, i));
+            }
+            LongIterator iterator = grams.iterator();
+            while (iterator.hasNext()) {
+                postings.computeIfAbsent(iterator.nextLong(), gram -> new IntArrayList()).add(ordinal);
+            }
+        }
+        
+        Long2ObjectMap<int[]> trimmed = new Long2ObjectOpenHashMap<>(postings.size());
+        for (Long2ObjectMap.Entry<IntArrayList> entry : postings.long2ObjectEntrySet()) {
+            trimmed.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+        return new NGramIndex(trimmed, unindexed);
+    }
+    
+    /**
+     * Returns the ordinals of the entries that may contain {@code term}, or {@code null} if the term
+     * is too short to be narrowed down.
+     */
+    @Nullable
+    public BitSet findCandidates(String term) {
+        if (term.length() < N) return null;
+        LongSet grams = new LongOpenHashSet();
+        for (int i = 0; i + N <= term.length(); i++) {
+            grams.add(gram(term, i));
+        }
+        int[][] lists = new int[grams.size()][];
+        int i = 0;
+        LongIterator iterator = grams.iterator();
+        while (iterator.hasNext()) {
+            int[] list = postings.get(iterator.nextLong());
+            lists[i++] = list == null ? EMPTY : list;
+        }
+        // Intersect from the rarest trigram, so the intermediate result is as small as possible
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] matched = lists[0].clone();
+        int size = matched.length;
+        for (int j = 1; j < lists.length && size > 0; j++) {
+            size = intersect(matched, size, lists[j]);
+        }
+        BitSet candidates = (BitSet) unindexed.clone();
+        for (int j = 0; j < size; j++) {
+            candidates.set(matched[j]);
+        }
+        return candidates;
+    }
+    
+    private static int intersect(int[] matched, int size, int[] list) {
+        int result = 0;
+        int i = 0, j = 0;
+        while (i < size && j < list.length) {
+            if (matched[i] < list[j]) {
+                i++;
+            } else if (matched[i] > list[j]) {
+                j++;
+            } else {
+                matched[result++] = matched[i];
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    private static long gram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.search;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import dev.architectury.platform.Mod;
+import dev.architectury.platform.Platform;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.impl.client.search.argument.type.ArgumentType;
+import me.shedaniel.rei.impl.client.search.argument.type.TextArgumentType;
+import me.shedaniel.rei.impl.client.search.argument.type.TooltipArgumentType;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores the prepared text and tooltip columns of the {@link SearchIndex} under the config folder,
+ * so they do not have to be prepared again after launching the game.
+ * <p>
+ * Each column is stored in its own file per language, keyed by the exact hashes of the entries. A file is
+ * ignored if its format version or the fingerprint of the loaded mods and resource packs has changed.
+ * The fingerprint reads the client options and resource packs, so it is only computed on the client thread.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class PersistentSearchCache {
+    private static final int MAGIC = 0x52454953;
+    private static final int VERSION = 1;
+    private static final Path FOLDER = Platform.getConfigFolder().resolve("roughlyenoughitems/search_cache");
+    @Nullable
+    private static String modsFingerprint;
+    @Nullable
+    private static volatile Long clientFingerprint;
+    private final String language;
+    private final long fingerprint;
+    
+    private PersistentSearchCache(String language, long fingerprint) {
+        this.language = language;
+        this.fingerprint = fingerprint;
+    }
+    
+    /**
+     * Returns a cache for {@code language} with the fingerprint last computed on the client thread,
+     * or {@code null} if it has not been computed yet.
+     */
+    @Nullable
+    public static PersistentSearchCache create(String language) {
+        Long fingerprint = clientFingerprint;
+        return fingerprint == null ? null : new PersistentSearchCache(language, fingerprint);
+    }
+    
+    /**
+     * Computes the fingerprint of the loaded mods, resource packs and tooltip options, which must be called on the client thread.
+     */
+    public static void updateFingerprint() {
+        clientFingerprint = fingerprint();
+    }
+    
+    public boolean isPersisted(ArgumentType<?, ?> argumentType) {
+        return argumentType == TextArgumentType.INSTANCE || argumentType == TooltipArgumentType.INSTANCE;
+    }
+    
+    /**
+     * Loads the stored column of {@code argumentType}, or an empty map if it is missing or outdated.
+     */
+    public Long2ObjectMap<String> load(ArgumentType<?, ?> argumentType) {
+        Path path = getPath(argumentType);
+        if (!Files.exists(path)) return Long2ObjectMaps.emptyMap();
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (stream.readInt() != MAGIC || stream.readInt() != VERSION || stream.readLong() != fingerprint) {
+                return Long2ObjectMaps.emptyMap();
+            }
+            int size = stream.readInt();
+            Long2ObjectMap<String> map = new Long2ObjectOpenHashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                long hash = stream.readLong();
+                byte[] bytes = new byte[stream.readInt()];
+                stream.readFully(bytes);
+                map.put(hash, new String(bytes, StandardCharsets.UTF_8));
+            }
+            return map;
+        } catch (IOException | RuntimeException exception) {
+            RoughlyEnoughItemsCore.LOGGER.warn("Failed to load search cache from " + path, exception);
+            return Long2ObjectMaps.emptyMap();
+        }
+    }
+    
+    /**
+     * Stores the column of {@code argumentType} on the worker pool, skipping data that could not be prepared.
+     */
+    public void saveAsync(ArgumentType<?, ?> argumentType, long[] hashes, Object[] column) {
+        Path path = getPath(argumentType);
+        CompletableFuture.runAsync(() -> {
+            Path temporary = null;
+            try {
+                Files.createDirectories(path.getParent());
+                // Every save has its own temporary file, so concurrent saves of a column do not write into each other
+                temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+                int size = 0;
+                for (Object data : column) {
+                    if (data instanceof String) size++;
+                }
+                try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    stream.writeInt(MAGIC);
+                    stream.writeInt(VERSION);
+                    stream.writeLong(fingerprint);
+                    stream.writeInt(size);
+                    for (int ordinal = 0; ordinal < column.length; ordinal++) {
+                        if (column[ordinal] instanceof String text) {
+                            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                            stream.writeLong(hashes[ordinal]);
+                            stream.writeInt(bytes.length);
+                            stream.write(bytes);
+                        }
+                    }
+                }
+                try {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException exception) {
+                RoughlyEnoughItemsCore.LOGGER.warn("Failed to save search cache to " + path, exception);
+                if (temporary != null) {
+                    try {
+                        Files.deleteIfExists(temporary);
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }, WorkerPool.getExecutor());
+    }
+    
+    private Path getPath(ArgumentType<?, ?> argumentType) {
+        return FOLDER.resolve(argumentType.getName() + "_" + language + ".bin");
+    }
+    
+    private static long fingerprint() {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        if (modsFingerprint == null) {
+            // Mods do not change while the game is running, and this is computed every tick
+            StringBuilder builder = new StringBuilder();
+            List<Mod> mods = new ArrayList<>(Platform.getMods());
+            mods.sort(Comparator.comparing(Mod::getModId));
+            for (Mod mod : mods) {
+                builder.append(mod.getModId()).append('@').append(mod.getVersion()).append(';');
+            }
+            modsFingerprint = builder.toString();
+        }
+        hasher.putString(modsFingerprint, StandardCharsets.UTF_8);
+        // Resource packs and advanced tooltips may change names and tooltips
+        hasher.putBoolean(Minecraft.getInstance().options.advancedItemTooltips);
+        for (String pack : Minecraft.getInstance().getResourcePackRepository().getSelectedIds()) {
+            hasher.putString(pack, StandardCharsets.UTF_8);
+        }
+        return hasher.hash().asLong();
+    }
+}
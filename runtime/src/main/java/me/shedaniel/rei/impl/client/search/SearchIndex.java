@@ -0,0 +1,266 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.search;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import me.shedaniel.rei.api.client.config.ConfigObject;
+import me.shedaniel.rei.api.client.registry.entry.EntryRegistry;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.plugins.PluginManager;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.search.argument.type.ArgumentType;
+import me.shedaniel.rei.impl.client.search.argument.type.ArgumentTypesRegistry;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
+import me.shedaniel.rei.impl.common.util.StripedLongCache;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * The data every {@link ArgumentType} matches against, prepared for every registered entry.
+ * <p>
+ * Entries are given an ordinal, and each argument type has a column of prepared data indexed by it,
+ * which is built in parallel the first time the argument type is searched. Searches needing a column while it is
+ * being built wait for the build without holding a lock, and once built, columns are never modified,
+ * so searches can read them from any thread without locking.
+ * <p>
+ * Argument types that search by substring also get an {@link NGramIndex} over their column, to find the candidates
+ * of a search without testing every entry.
+ * <p>
+ * The text and tooltip columns can also be stored on disk by the {@link PersistentSearchCache}.
+ * <p>
+ * The index is rebuilt after a reload, after entries are added, or when the language is changed.
+ * While reloading, an empty index is shared, so filters are not compiled again for every tested entry.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class SearchIndex {
+    private static final int UNREGISTERED_CACHE_SIZE = 2048;
+    /**
+     * Stored in a column for entries that have no data, so their data is not prepared again on every search.
+     */
+    private static final Object NO_DATA = new Object();
+    @Nullable
+    private static volatile SearchIndex instance;
+    @Nullable
+    private static volatile SearchIndex reloadingInstance;
+    private final String language;
+    private final EntryStack<?>[] stacks;
+    private final long[] hashes;
+    @Nullable
+    private final PersistentSearchCache persistentCache;
+    private final Reference2IntMap<EntryStack<?>> ordinals;
+    private final Long2IntMap hashOrdinals;
+    private final AtomicReferenceArray<Object[]> columns;
+    private final AtomicReferenceArray<ForkJoinTask<Object[]>> columnBuilds;
+    private final AtomicReferenceArray<NGramIndex> ngramIndices;
+    private final StripedLongCache<Object>[] unregisteredData;
+    
+    private SearchIndex(String language, EntryStack<?>[] stacks, @Nullable PersistentSearchCache persistentCache) {
+        this.language = language;
+        this.stacks = stacks;
+        this.hashes = new long[stacks.length];
+        this.persistentCache = persistentCache;
+        this.ordinals = new Reference2IntOpenHashMap<>(stacks.length);
+        this.ordinals.defaultReturnValue(-1);
+        this.hashOrdinals = new Long2IntOpenHashMap(stacks.length);
+        this.hashOrdinals.defaultReturnValue(-1);
+        this.columns = new AtomicReferenceArray<>(ArgumentTypesRegistry.ARGUMENT_TYPE_LIST.size());
+        this.columnBuilds = new AtomicReferenceArray<>(ArgumentTypesRegistry.ARGUMENT_TYPE_LIST.size());
+        this.ngramIndices = new AtomicReferenceArray<>(ArgumentTypesRegistry.ARGUMENT_TYPE_LIST.size());
+        this.unregisteredData = new StripedLongCache[ArgumentTypesRegistry.ARGUMENT_TYPE_LIST.size()];
+        for (int i = 0; i < unregisteredData.length; i++) {
+            this.unregisteredData[i] = new StripedLongCache<>(Runtime.getRuntime().availableProcessors() * 2, UNREGISTERED_CACHE_SIZE);
+        }
+        for (int ordinal = 0; ordinal < stacks.length; ordinal++) {
+            hashes[ordinal] = EntryStacks.hashExact(stacks[ordinal]);
+            ordinals.put(stacks[ordinal], ordinal);
+            hashOrdinals.putIfAbsent(hashes[ordinal], ordinal);
+        }
+    }
+    
+    public static SearchIndex getInstance() {
+        String language = Minecraft.getInstance().options.languageCode;
+        SearchIndex index = instance;
+        if (index != null && index.language.equals(language)) {
+            return index;
+        }
+        if (PluginManager.areAnyReloading()) {
+            index = reloadingInstance;
+            if (index == null || !index.language.equals(language)) {
+                reloadingInstance = index = new SearchIndex(language, new EntryStack[0], null);
+            }
+            return index;
+        }
+        synchronized (SearchIndex.class) {
+            index = instance;
+            if (index == null || !index.language.equals(language)) {
+                PersistentSearchCache persistentCache = null;
+                if (ConfigObject.getInstance().isPersistentSearchCacheEnabled()) {
+                    if (Minecraft.getInstance().isSameThread()) {
+                        PersistentSearchCache.updateFingerprint();
+                    }
+                    persistentCache = PersistentSearchCache.create(language);
+                }
+                instance = index = new SearchIndex(language, EntryRegistry.getInstance().getEntryStacks().toArray(EntryStack[]::new), persistentCache);
+            }
+            return index;
+        }
+    }
+    
+    public int size() {
+        return stacks.length;
+    }
+    
+    public EntryStack<?> getStack(int ordinal) {
+        return stacks[ordinal];
+    }
+    
+    public static void invalidate() {
+        instance = null;
+        reloadingInstance = null;
+    }
+    
+    /**
+     * Returns the ordinal of {@code stack}, or {@code -1} if the stack is not registered.
+     */
+    public int getOrdinal(EntryStack<?> stack) {
+        int ordinal = ordinals.getInt(stack);
+        if (ordinal == -1) {
+            ordinal = hashOrdinals.get(EntryStacks.hashExact(stack));
+        }
+        return ordinal;
+    }
+    
+    /**
+     * Returns the data of {@code stack} for {@code argumentType}. Data of stacks that are not registered is
+     * kept in a bounded cache, and data that could not be prepared while building the column is prepared on the spot.
+     */
+    @Nullable
+    public <R> R getData(ArgumentType<?, R> argumentType, int ordinal, EntryStack<?> stack) {
+        if (ordinal >= 0) {
+            Object data = getColumn(argumentType)[ordinal];
+            if (data == NO_DATA) {
+                return null;
+            } else if (data != null) {
+                return (R) data;
+            }
+            return argumentType.prepareData(stack);
+        }
+        return (R) unregisteredData[argumentType.getIndex()].computeIfAbsent(EntryStacks.hashExact(stack), hash -> argumentType.prepareData(stack));
+    }
+    
+    /**
+     * Returns the n-gram index of the column of {@code argumentType}, which must be a {@link ArgumentType#isSubstringSearch() substring search}.
+     */
+    public NGramIndex getNGramIndex(ArgumentType<?, ?> argumentType) {
+        int index = argumentType.getIndex();
+        NGramIndex ngramIndex = ngramIndices.get(index);
+        if (ngramIndex == null) {
+            Object[] column = getColumn(argumentType);
+            synchronized (this) {
+                ngramIndex = ngramIndices.get(index);
+                if (ngramIndex == null) {
+                    ngramIndex = NGramIndex.build(column);
+                    ngramIndices.set(index, ngramIndex);
+                }
+            }
+        }
+        return ngramIndex;
+    }
+    
+    /**
+     * Returns the column of {@code argumentType}, building it if it has not been built yet.
+     * Only one thread builds a column, other threads wait for the build by joining it, which lets idle workers help with it.
+     */
+    private Object[] getColumn(ArgumentType<?, ?> argumentType) {
+        int index = argumentType.getIndex();
+        Object[] column = columns.get(index);
+        if (column != null) {
+            return column;
+        }
+        ForkJoinTask<Object[]> build = columnBuilds.get(index);
+        if (build == null) {
+            ForkJoinTask<Object[]> newBuild = ForkJoinTask.adapt(() -> buildColumn(argumentType));
+            if (columnBuilds.compareAndSet(index, null, newBuild)) {
+                try {
+                    column = newBuild.invoke();
+                    columns.set(index, column);
+                    return column;
+                } finally {
+                    if (newBuild.isCompletedAbnormally()) {
+                        // Allow the build to be tried again with the next search
+                        columnBuilds.compareAndSet(index, newBuild, null);
+                    }
+                }
+            }
+            build = columnBuilds.get(index);
+            if (build == null) {
+                return getColumn(argumentType);
+            }
+        }
+        return build.join();
+    }
+    
+    private Object[] buildColumn(ArgumentType<?, ?> argumentType) {
+        Object[] column = new Object[stacks.length];
+        boolean persisted = persistentCache != null && persistentCache.isPersisted(argumentType);
+        Long2ObjectMap<String> stored = persisted ? persistentCache.load(argumentType) : null;
+        AtomicBoolean prepared = new AtomicBoolean();
+        WorkerPool.invoke(() -> {
+            IntStream.range(0, stacks.length).parallel().forEach(ordinal -> {
+                if (stored != null) {
+                    String data = stored.get(hashes[ordinal]);
+                    if (data != null) {
+                        column[ordinal] = data;
+                        return;
+                    }
+                }
+                try {
+                    Object data = argumentType.prepareData(stacks[ordinal]);
+                    column[ordinal] = data == null ? NO_DATA : data;
+                    prepared.set(true);
+                } catch (Throwable ignored) {
+                    // Left to be prepared on the spot, so the failure is reported with the search
+                }
+            });
+            return null;
+        });
+        if (persisted && prepared.get()) {
+            persistentCache.saveAsync(argumentType, hashes, column);
+        }
+        return column;
+    }
+}
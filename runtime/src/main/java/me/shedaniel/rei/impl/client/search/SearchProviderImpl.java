@@ -28,12 +28,15 @@ import me.shedaniel.rei.api.client.search.SearchProvider;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.impl.client.search.argument.Argument;
 import me.shedaniel.rei.impl.client.search.argument.CompoundArgument;
+import me.shedaniel.rei.impl.client.search.argument.QueryPlan;
 import me.shedaniel.rei.impl.client.util.CrashReportUtils;
 import net.minecraft.CrashReport;
 import net.minecraft.CrashReportCategory;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 public class SearchProviderImpl implements SearchProvider {
     @Override
@@ -49,6 +52,8 @@ public class SearchProviderImpl implements SearchProvider {
     public static class SearchFilterImpl implements SearchFilter {
         private final List<CompoundArgument> arguments;
         private final String filter;
+        @Nullable
+        private volatile QueryPlan plan;
         
         public SearchFilterImpl(List<CompoundArgument> arguments, String searchTerm) {
             this.arguments = arguments;
@@ -57,8 +62,21 @@ public class SearchProviderImpl implements SearchProvider {
         
         @Override
         public boolean test(EntryStack<?> stack) {
+            return test(getPlan(SearchIndex.getInstance()), stack);
+        }
+        
+        /**
+         * Returns this filter compiled against the current search index, searches testing many stacks
+         * should prepare the filter once, so the index is not resolved again for every stack.
+         */
+        public Predicate<EntryStack<?>> prepare() {
+            QueryPlan plan = getPlan(SearchIndex.getInstance());
+            return stack -> test(plan, stack);
+        }
+        
+        private static boolean test(QueryPlan plan, EntryStack<?> stack) {
             try {
-                return Argument.matches(stack, arguments);
+                return plan.test(stack);
             } catch (Throwable throwable) {
                 CrashReport report = CrashReportUtils.essential(throwable, "Testing entry with search filter");
                 CrashReportCategory category = report.addCategory("Search entry details");
@@ -71,11 +89,35 @@ public class SearchProviderImpl implements SearchProvider {
             }
         }
         
+        /**
+         * Returns this filter compiled against {@code index}, which is usually only compiled once per index.
+         * Compiling is not locked, so threads compiling at the same time all help building the columns of the index
+         * instead of waiting for each other.
+         */
+        private QueryPlan getPlan(SearchIndex index) {
+            QueryPlan plan = this.plan;
+            if (plan == null || plan.getIndex() != index) {
+                this.plan = plan = QueryPlan.compile(index, arguments);
+            }
+            return plan;
+        }
+        
         @Override
         public String getFilter() {
             return filter;
         }
         
+        public List<CompoundArgument> getArguments() {
+            return arguments;
+        }
+        
+        /**
+         * Returns whether this filter only matches entries that are also matched by {@code filter}.
+         */
+        public boolean isRefinementOf(SearchFilter filter) {
+            return filter instanceof SearchFilterImpl impl && Argument.isRefinement(impl.arguments, arguments);
+        }
+        
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
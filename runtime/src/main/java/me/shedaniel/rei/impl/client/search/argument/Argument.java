@@ -25,35 +25,24 @@ package me.shedaniel.rei.impl.client.search.argument;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectMaps;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
 import me.shedaniel.rei.api.client.gui.config.SearchMode;
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.impl.client.search.IntRange;
+import me.shedaniel.rei.impl.client.search.SearchIndex;
 import me.shedaniel.rei.impl.client.search.argument.type.AlwaysMatchingArgumentType;
 import me.shedaniel.rei.impl.client.search.argument.type.ArgumentType;
 import me.shedaniel.rei.impl.client.search.argument.type.ArgumentTypesRegistry;
 import me.shedaniel.rei.impl.client.search.result.ArgumentApplicableResult;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
-import net.minecraft.client.Minecraft;
 import net.minecraft.util.Unit;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.Mutable;
-import org.apache.commons.lang3.mutable.MutableObject;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,8 +50,6 @@ import java.util.regex.Pattern;
 @Environment(EnvType.CLIENT)
 public class Argument<T, R> {
     public static final String SPACE = " ", EMPTY = "";
-    public static final Short2ObjectMap<Long2ObjectMap<Object>> SEARCH_CACHE = Short2ObjectMaps.synchronize(new Short2ObjectOpenHashMap<>());
-    private static final AtomicReference<String> lastLanguage = new AtomicReference<>();
     static final Argument<Unit, Unit> ALWAYS = new Argument<>(AlwaysMatchingArgumentType.INSTANCE, EMPTY, true, -1, -1, true);
     private ArgumentType<T, R> argumentType;
     private String text;
@@ -171,54 +158,50 @@ public class Argument<T, R> {
         }
     }
     
+    boolean matches(SearchIndex index, int ordinal, EntryStack<?> stack) {
+        return argumentType.matches(index.getData(argumentType, ordinal, stack), stack, text, filterData);
+    }
+    
+    /**
+     * Returns whether every entry matched by {@code compoundArguments} is also matched by {@code lastCompoundArguments},
+     * which allows a search to only test the results of the last search.
+     */
     @ApiStatus.Internal
-    public static boolean matches(EntryStack<?> stack, List<CompoundArgument> compoundArguments) {
-        if (compoundArguments.isEmpty()) return true;
-        String newLanguage = Minecraft.getInstance().options.languageCode;
-        if (!Objects.equals(lastLanguage.getAndSet(newLanguage), newLanguage)) {
-            SEARCH_CACHE.clear();
-        }
-        Mutable<?> mutable = new MutableObject<>();
-        
-        a:
-        for (CompoundArgument arguments : compoundArguments) {
-            for (AlternativeArgument argument : arguments) {
-                if (!matches(stack, argument, mutable)) {
-                    continue a;
+    public static boolean isRefinement(List<CompoundArgument> lastCompoundArguments, List<CompoundArgument> compoundArguments) {
+        if (lastCompoundArguments.isEmpty()) return true;
+        if (lastCompoundArguments.size() != compoundArguments.size()) return false;
+        for (int i = 0; i < compoundArguments.size(); i++) {
+            CompoundArgument lastArguments = lastCompoundArguments.get(i);
+            CompoundArgument arguments = compoundArguments.get(i);
+            if (lastArguments.isAlways()) continue;
+            // Additional terms can only narrow the results down
+            if (lastArguments.size() > arguments.size()) return false;
+            for (int j = 0; j < lastArguments.size(); j++) {
+                if (!isRefinement(lastArguments.get(j), arguments.get(j))) {
+                    return false;
                 }
             }
-            
-            return true;
         }
-        
-        return false;
+        return true;
     }
     
-    private static <T, R, Z, B> boolean matches(EntryStack<?> stack, AlternativeArgument alternativeArgument, Mutable<?> mutable) {
-        if (alternativeArgument.isEmpty()) return true;
-        long hashExact = EntryStacks.hashExact(stack);
-        
-        for (Argument<?, ?> argument : alternativeArgument) {
-            if (matches((short) argument.getArgument().getIndex(), argument.getArgument(), mutable, stack, hashExact, argument.getText(), argument.filterData) == argument.isRegular()) {
-                return true;
+    private static boolean isRefinement(AlternativeArgument lastAlternativeArgument, AlternativeArgument alternativeArgument) {
+        if (lastAlternativeArgument.isEmpty()) return true;
+        if (lastAlternativeArgument.size() != alternativeArgument.size()) return false;
+        for (int i = 0; i < alternativeArgument.size(); i++) {
+            Argument<?, ?> lastArgument = lastAlternativeArgument.get(i);
+            Argument<?, ?> argument = alternativeArgument.get(i);
+            if (lastArgument.getArgument() != argument.getArgument() || lastArgument.isRegular() != argument.isRegular()) {
+                return false;
+            }
+            // Inverted arguments narrow down when the text gets shorter instead
+            boolean refinement = argument.isRegular() ? argument.getArgument().isRefinement(lastArgument.getText(), argument.getText())
+                    : argument.getArgument().isRefinement(argument.getText(), lastArgument.getText());
+            if (!refinement) {
+                return false;
             }
         }
-        
-        return false;
-    }
-    
-    private static <T, R, Z, B> boolean matches(short argumentIndex, ArgumentType<T, B> argumentType, Mutable<Z> data, EntryStack<?> stack, long hashExact, String filter, R filterData) {
-        Long2ObjectMap<Object> map = SEARCH_CACHE.get(argumentIndex);
-        if (map == null) {
-            SEARCH_CACHE.put(argumentIndex, map = Long2ObjectMaps.synchronize(new Long2ObjectOpenHashMap<>()));
-        }
-        Z value = (Z) map.get(hashExact);
-        data.setValue(value);
-        boolean matches = argumentType.matches((Mutable<B>) data, stack, filter, (T) filterData);
-        if (value == null) {
-            map.put(hashExact, data.getValue());
-        }
-        return matches;
+        return true;
     }
     
     public ArgumentType<?, ?> getArgument() {
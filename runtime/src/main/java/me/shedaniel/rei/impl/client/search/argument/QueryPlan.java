@@ -0,0 +1,193 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.search.argument;
+
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.client.search.NGramIndex;
+import me.shedaniel.rei.impl.client.search.SearchIndex;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A search compiled against a {@link SearchIndex}, which finds the candidates of the search and orders its
+ * arguments so the ones that are cheap or likely to decide the result are tested first.
+ * <p>
+ * The selectivity of substring arguments is estimated from their candidates, other arguments are assumed
+ * to match half of the entries. Alternatives are ordered by cost over the chance of matching, since any match
+ * ends the test early, and compound arguments by cost over the chance of not matching.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class QueryPlan {
+    private static final double UNKNOWN_SELECTIVITY = 0.5;
+    private static final double MIN_CHANCE = 1.0E-6;
+    private final SearchIndex index;
+    @Nullable
+    private final BitSet candidates;
+    private final Argument<?, ?>[][][] compoundArguments;
+    
+    private QueryPlan(SearchIndex index, @Nullable BitSet candidates, Argument<?, ?>[][][] compoundArguments) {
+        this.index = index;
+        this.candidates = candidates;
+        this.compoundArguments = compoundArguments;
+    }
+    
+    public static QueryPlan compile(SearchIndex index, List<CompoundArgument> compoundArguments) {
+        int size = Math.max(1, index.size());
+        List<Step<Argument<?, ?>[][]>> compoundSteps = new ArrayList<>(compoundArguments.size());
+        BitSet candidates = new BitSet();
+        boolean narrowed = true;
+        
+        for (CompoundArgument arguments : compoundArguments) {
+            List<Step<Argument<?, ?>[]>> alternativeSteps = new ArrayList<>(arguments.size());
+            BitSet compoundCandidates = null;
+            
+            for (AlternativeArgument alternativeArgument : arguments) {
+                List<Step<Argument<?, ?>>> argumentSteps = new ArrayList<>(alternativeArgument.size());
+                BitSet alternativeCandidates = alternativeArgument.isEmpty() ? null : new BitSet();
+                
+                for (Argument<?, ?> argument : alternativeArgument) {
+                    BitSet argumentCandidates = findCandidates(index, argument);
+                    if (argumentCandidates == null) {
+                        alternativeCandidates = null;
+                    } else if (alternativeCandidates != null) {
+                        alternativeCandidates.or(argumentCandidates);
+                    }
+                    double selectivity = argumentCandidates == null ? UNKNOWN_SELECTIVITY : (double) argumentCandidates.cardinality() / size;
+                    argumentSteps.add(new Step<>(argument, argument.getArgument().getCost(), selectivity));
+                }
+                
+                alternativeSteps.add(any(argumentSteps, Argument[]::new));
+                if (alternativeCandidates != null) {
+                    if (compoundCandidates == null) {
+                        compoundCandidates = alternativeCandidates;
+                    } else {
+                        compoundCandidates.and(alternativeCandidates);
+                    }
+                }
+            }
+            
+            compoundSteps.add(all(alternativeSteps, Argument[][]::new));
+            if (compoundCandidates == null) {
+                narrowed = false;
+            } else {
+                candidates.or(compoundCandidates);
+            }
+        }
+        
+        compoundSteps.sort(Comparator.comparingDouble(step -> step.cost() / Math.max(step.selectivity(), MIN_CHANCE)));
+        Argument<?, ?>[][][] plan = new Argument[compoundSteps.size()][][];
+        for (int i = 0; i < plan.length; i++) {
+            plan[i] = compoundSteps.get(i).value();
+        }
+        return new QueryPlan(index, narrowed && !compoundArguments.isEmpty() ? candidates : null, plan);
+    }
+    
+    @Nullable
+    private static BitSet findCandidates(SearchIndex index, Argument<?, ?> argument) {
+        // Inverted arguments match almost everything, there is nothing to narrow down
+        if (!argument.isRegular() || !argument.getArgument().isSubstringSearch() || argument.getText().length() < NGramIndex.N) {
+            return null;
+        }
+        return index.getNGramIndex(argument.getArgument()).findCandidates(argument.getText());
+    }
+    
+    /**
+     * Orders steps of which any has to match, the combined selectivity assumes the steps are independent.
+     */
+    private static <T> Step<T[]> any(List<Step<T>> steps, IntFunction<T[]> arrayFactory) {
+        steps.sort(Comparator.comparingDouble(step -> step.cost() / Math.max(step.selectivity(), MIN_CHANCE)));
+        T[] values = arrayFactory.apply(steps.size());
+        double cost = 0, missChance = 1;
+        for (int i = 0; i < values.length; i++) {
+            Step<T> step = steps.get(i);
+            values[i] = step.value();
+            cost += step.cost() * missChance;
+            missChance *= 1 - step.selectivity();
+        }
+        return new Step<>(values, cost, values.length == 0 ? 1 : 1 - missChance);
+    }
+    
+    /**
+     * Orders steps of which all have to match, the combined selectivity assumes the steps are independent.
+     */
+    private static <T> Step<T[]> all(List<Step<T>> steps, IntFunction<T[]> arrayFactory) {
+        steps.sort(Comparator.comparingDouble(step -> step.cost() / Math.max(1 - step.selectivity(), MIN_CHANCE)));
+        T[] values = arrayFactory.apply(steps.size());
+        double cost = 0, matchChance = 1;
+        for (int i = 0; i < values.length; i++) {
+            Step<T> step = steps.get(i);
+            values[i] = step.value();
+            cost += step.cost() * matchChance;
+            matchChance *= step.selectivity();
+        }
+        return new Step<>(values, cost, matchChance);
+    }
+    
+    public SearchIndex getIndex() {
+        return index;
+    }
+    
+    public boolean test(EntryStack<?> stack) {
+        if (compoundArguments.length == 0) return true;
+        int ordinal = index.getOrdinal(stack);
+        if (candidates != null && ordinal >= 0 && !candidates.get(ordinal)) return false;
+        
+        a:
+        for (Argument<?, ?>[][] arguments : compoundArguments) {
+            for (Argument<?, ?>[] alternativeArgument : arguments) {
+                if (!matches(ordinal, stack, alternativeArgument)) {
+                    continue a;
+                }
+            }
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    private boolean matches(int ordinal, EntryStack<?> stack, Argument<?, ?>[] alternativeArgument) {
+        if (alternativeArgument.length == 0) return true;
+        
+        for (Argument<?, ?> argument : alternativeArgument) {
+            if (argument.matches(index, ordinal, stack) == argument.isRegular()) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private record Step<T>(T value, double cost, double selectivity) {
+    }
+}
@@ -29,7 +29,6 @@ import me.shedaniel.rei.impl.client.search.result.ArgumentApplicableResult;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.network.chat.Style;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -83,10 +82,41 @@ public abstract class ArgumentType<T, R> {
         return ArgumentApplicableResult.notApplicable();
     }
     
-    public abstract boolean matches(Mutable<R> data, EntryStack<?> stack, String searchText, T filterData);
+    /**
+     * Prepares the data of {@code stack} this argument type matches against, which is cached by the {@link me.shedaniel.rei.impl.client.search.SearchIndex}.
+     */
+    @Nullable
+    public abstract R prepareData(EntryStack<?> stack);
+    
+    public abstract boolean matches(R data, EntryStack<?> stack, String searchText, T filterData);
     
     public abstract T prepareSearchFilter(String searchText);
     
+    /**
+     * Returns whether a search with {@code searchText} only matches entries that were
+     * also matched by a search with {@code lastSearchText}.
+     * <p>
+     * Argument types that match by substring can accept any longer text containing the last one.
+     */
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return lastSearchText.equals(searchText);
+    }
+    
+    /**
+     * Returns whether this argument type matches when its prepared {@link String} data contains the search text,
+     * which allows the {@link me.shedaniel.rei.impl.client.search.NGramIndex} to narrow down the candidates.
+     */
+    public boolean isSubstringSearch() {
+        return false;
+    }
+    
+    /**
+     * Returns the relative cost of matching a single entry, cheaper arguments are tested first.
+     */
+    public int getCost() {
+        return 1;
+    }
+    
     public int getIndex() {
         if (index >= 0) return index;
         return index = ArgumentTypesRegistry.ARGUMENT_TYPE_LIST.indexOf(this);
@@ -32,7 +32,6 @@ import net.minecraft.network.chat.Style;
 import net.minecraft.network.chat.TextColor;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Unit;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -65,22 +64,29 @@ public final class IdentifierArgumentType extends ArgumentType<Unit, String> {
     }
     
     @Override
-    public boolean matches(Mutable<String> data, EntryStack<?> stack, String searchText, Unit filterData) {
-        if (data.getValue() == null) {
-            ResourceLocation identifier = stack.getIdentifier();
-            if (identifier == null) {
-                data.setValue(EMPTY);
-            } else {
-                String s = identifier.getPath();
-                if (s.isEmpty()) {
-                    data.setValue(EMPTY);
-                } else {
-                    data.setValue(s);
-                }
-            }
+    public String prepareData(EntryStack<?> stack) {
+        ResourceLocation identifier = stack.getIdentifier();
+        if (identifier == null) {
+            return EMPTY;
+        } else {
+            String s = identifier.getPath();
+            return s.isEmpty() ? EMPTY : s;
         }
-        String identifier = data.getValue();
-        return !identifier.isEmpty() && identifier.contains(searchText);
+    }
+    
+    @Override
+    public boolean matches(String data, EntryStack<?> stack, String searchText, Unit filterData) {
+        return !data.isEmpty() && data.contains(searchText);
+    }
+    
+    @Override
+    public boolean isSubstringSearch() {
+        return true;
+    }
+    
+    @Override
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return searchText.contains(lastSearchText);
     }
     
     @Override
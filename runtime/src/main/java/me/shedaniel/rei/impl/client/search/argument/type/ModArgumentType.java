@@ -33,7 +33,6 @@ import net.minecraft.network.chat.Style;
 import net.minecraft.network.chat.TextColor;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Unit;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -41,7 +40,7 @@ import java.util.Locale;
 
 @ApiStatus.Internal
 @Environment(EnvType.CLIENT)
-public final class ModArgumentType extends ArgumentType<Unit, ModArgumentType.@Nullable ModInfoPair> {
+public final class ModArgumentType extends ArgumentType<Unit, ModArgumentType.ModInfoPair> {
     public static final ModArgumentType INSTANCE = new ModArgumentType();
     private static final Style STYLE = Style.EMPTY.withColor(TextColor.fromRgb(0xffa8f3));
     
@@ -62,20 +61,24 @@ public final class ModArgumentType extends ArgumentType<Unit, ModArgumentType.@N
     }
     
     @Override
-    public boolean matches(Mutable<@Nullable ModInfoPair> data, EntryStack<?> stack, String searchText, Unit filterData) {
-        if (data.getValue() == null) {
-            ResourceLocation id = stack.getIdentifier();
-            data.setValue(id != null ? new ModInfoPair(
-                    id.getNamespace(),
-                    null
-            ) : ModInfoPair.EMPTY);
-        }
-        ModInfoPair pair = data.getValue();
-        if (pair.modId == null || pair.modId.contains(searchText)) return true;
-        if (pair.modName == null) {
-            pair.modName = ClientHelper.getInstance().getModFromModId(pair.modId).toLowerCase(Locale.ROOT);
-        }
-        return pair.modName.isEmpty() || pair.modName.contains(searchText);
+    public ModInfoPair prepareData(EntryStack<?> stack) {
+        ResourceLocation id = stack.getIdentifier();
+        if (id == null) return ModInfoPair.EMPTY;
+        return new ModInfoPair(
+                id.getNamespace(),
+                ClientHelper.getInstance().getModFromModId(id.getNamespace()).toLowerCase(Locale.ROOT)
+        );
+    }
+    
+    @Override
+    public boolean matches(ModInfoPair data, EntryStack<?> stack, String searchText, Unit filterData) {
+        if (data.modId == null || data.modId.contains(searchText)) return true;
+        return data.modName.isEmpty() || data.modName.contains(searchText);
+    }
+    
+    @Override
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return searchText.contains(lastSearchText);
     }
     
     @Override
@@ -96,7 +99,7 @@ public final class ModArgumentType extends ArgumentType<Unit, ModArgumentType.@N
         @Nullable
         private final String modId;
         @Nullable
-        private String modName;
+        private final String modName;
         
         public ModInfoPair(@Nullable String modId, @Nullable String modName) {
             this.modId = modId;
@@ -32,7 +32,6 @@ import net.minecraft.network.chat.Style;
 import net.minecraft.network.chat.TextColor;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Unit;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -67,22 +66,22 @@ public final class TagArgumentType extends ArgumentType<Unit, String[]> {
     }
     
     @Override
-    public boolean matches(Mutable<String[]> data, EntryStack<?> stack, String searchText, Unit filterData) {
-        if (data.getValue() == null) {
-            Collection<ResourceLocation> tags = stack.getTagsFor();
-            if (tags.isEmpty()) {
-                data.setValue(EMPTY_ARRAY);
-            } else {
-                data.setValue(new String[tags.size()]);
-                int i = 0;
-                
-                for (ResourceLocation identifier : tags) {
-                    data.getValue()[i] = identifier.toString();
-                    i++;
-                }
-            }
+    public String[] prepareData(EntryStack<?> stack) {
+        Collection<ResourceLocation> tags = stack.getTagsFor();
+        if (tags.isEmpty()) return EMPTY_ARRAY;
+        String[] data = new String[tags.size()];
+        int i = 0;
+        
+        for (ResourceLocation identifier : tags) {
+            data[i] = identifier.toString();
+            i++;
         }
-        for (String tag : data.getValue()) {
+        return data;
+    }
+    
+    @Override
+    public boolean matches(String[] data, EntryStack<?> stack, String searchText, Unit filterData) {
+        for (String tag : data) {
             if (!tag.isEmpty() && tag.contains(searchText)) {
                 return true;
             }
@@ -90,6 +89,16 @@ public final class TagArgumentType extends ArgumentType<Unit, String[]> {
         return false;
     }
     
+    @Override
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return searchText.contains(lastSearchText);
+    }
+    
+    @Override
+    public int getCost() {
+        return 2;
+    }
+    
     @Override
     public Unit prepareSearchFilter(String searchText) {
         return Unit.INSTANCE;
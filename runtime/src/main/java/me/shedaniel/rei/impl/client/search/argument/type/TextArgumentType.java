@@ -27,7 +27,6 @@ import me.shedaniel.rei.api.common.entry.EntryStack;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.util.Unit;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -50,12 +49,28 @@ public final class TextArgumentType extends ArgumentType<Unit, String> {
     }
     
     @Override
-    public boolean matches(Mutable<String> data, EntryStack<?> stack, String searchText, Unit filterData) {
-        if (data.getValue() == null) {
-            data.setValue(stack.asFormatStrippedText().getString().toLowerCase(Locale.ROOT));
-        }
-        String value = data.getValue();
-        return !value.isEmpty() && value.contains(searchText);
+    public String prepareData(EntryStack<?> stack) {
+        return stack.asFormatStrippedText().getString().toLowerCase(Locale.ROOT);
+    }
+    
+    @Override
+    public boolean matches(String data, EntryStack<?> stack, String searchText, Unit filterData) {
+        return !data.isEmpty() && data.contains(searchText);
+    }
+    
+    @Override
+    public boolean isSubstringSearch() {
+        return true;
+    }
+    
+    @Override
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return searchText.contains(lastSearchText);
+    }
+    
+    @Override
+    public int getCost() {
+        return 2;
     }
     
     @Override
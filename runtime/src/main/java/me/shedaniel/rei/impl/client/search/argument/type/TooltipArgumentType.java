@@ -35,7 +35,6 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.Style;
 import net.minecraft.network.chat.TextColor;
 import net.minecraft.util.Unit;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
@@ -70,14 +69,16 @@ public final class TooltipArgumentType extends ArgumentType<Unit, String> {
     }
     
     @Override
-    public boolean matches(Mutable<String> data, EntryStack<?> stack, String searchText, Unit filterData) {
-        if (data.getValue() == null) {
-            String tooltip = tryGetEntryStackTooltip(stack, 0);
-            if (tooltip == null) return false;
-            data.setValue(tooltip.toLowerCase(Locale.ROOT));
-        }
-        String tooltip = data.getValue();
-        return tooltip.isEmpty() || tooltip.contains(searchText);
+    @Nullable
+    public String prepareData(EntryStack<?> stack) {
+        String tooltip = tryGetEntryStackTooltip(stack, 0);
+        return tooltip == null ? null : tooltip.toLowerCase(Locale.ROOT);
+    }
+    
+    @Override
+    public boolean matches(@Nullable String data, EntryStack<?> stack, String searchText, Unit filterData) {
+        if (data == null) return false;
+        return data.isEmpty() || data.contains(searchText);
     }
     
     @Nullable
@@ -106,6 +107,21 @@ public final class TooltipArgumentType extends ArgumentType<Unit, String> {
         }
     }
     
+    @Override
+    public boolean isSubstringSearch() {
+        return true;
+    }
+    
+    @Override
+    public boolean isRefinement(String lastSearchText, String searchText) {
+        return searchText.contains(lastSearchText);
+    }
+    
+    @Override
+    public int getCost() {
+        return 4;
+    }
+    
     @Override
     public Unit prepareSearchFilter(String searchText) {
         return Unit.INSTANCE;
@@ -0,0 +1,85 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.util;
+
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
+import me.shedaniel.rei.api.client.config.ConfigObject;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The work-stealing pool used for searching and filtering entries, separate from the common pool
+ * so that other mods saturating the common pool do not slow REI down.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class WorkerPool {
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger(1);
+    private static ForkJoinPool pool;
+    private static int parallelism = -1;
+    
+    private WorkerPool() {
+    }
+    
+    public static synchronized ForkJoinPool getExecutor() {
+        int threadCount = ConfigObject.getInstance().getAsyncSearchThreadCount();
+        int parallelism = threadCount > 0 ? threadCount : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        if (pool == null || WorkerPool.parallelism != parallelism) {
+            ForkJoinPool oldPool = pool;
+            pool = new ForkJoinPool(parallelism, WorkerPool::createWorker, (thread, throwable) -> {
+                RoughlyEnoughItemsCore.LOGGER.error("Uncaught exception in " + thread.getName(), throwable);
+            }, true);
+            WorkerPool.parallelism = parallelism;
+            if (oldPool != null) {
+                oldPool.shutdown();
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * Runs {@code supplier} inside the pool, so parallel streams created by it are run by REI workers.
+     */
+    public static <T> T invoke(Supplier<T> supplier) {
+        ForkJoinPool executor = getExecutor();
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread thread && thread.getPool() == executor) {
+            return supplier.get();
+        }
+        return executor.submit(supplier::get).join();
+    }
+    
+    private static ForkJoinWorkerThread createWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("REI-Worker-" + WORKER_COUNT.getAndIncrement());
+        thread.setDaemon(true);
+        thread.setContextClassLoader(WorkerPool.class.getClassLoader());
+        return thread;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.view;
+
+import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
+import me.shedaniel.rei.api.client.view.ViewSearchBuilder;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
+import me.shedaniel.rei.impl.display.DisplaySpec;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded LRU cache of the displays found in the category lists for the recipe views built by {@link ViewsImpl#buildMapFor(ViewSearchBuilder)},
+ * and of the display specs they are merged into, invalidated whenever the displays, their visibility, the config or the level changes.
+ * <p>
+ * Displays from dynamic generators are not cached, categories they add displays to are merged again for every view.
+ * Views are not cached at all while the visibility of displays may change at any time.
+ */
+@ApiStatus.Internal
+@Environment(EnvType.CLIENT)
+public final class ViewCache {
+    private static final int MAX_SIZE = 64;
+    private static final Map<Key, Map<DisplayCategory<?>, CategoryView>> CACHE = new LinkedHashMap<>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Map<DisplayCategory<?>, CategoryView>> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong BUILD_NANOS = new AtomicLong();
+    private static WeakReference<Object> level = new WeakReference<>(null);
+    
+    private ViewCache() {
+    }
+    
+    @Nullable
+    public static Map<DisplayCategory<?>, CategoryView> get(Key key) {
+        Map<DisplayCategory<?>, CategoryView> map;
+        synchronized (CACHE) {
+            // Visibility predicates may depend on the level
+            Object level = Minecraft.getInstance().level;
+            if (ViewCache.level.get() != level) {
+                ViewCache.level = new WeakReference<>(level);
+                GENERATION.incrementAndGet();
+                CACHE.clear();
+            }
+            map = CACHE.get(key);
+        }
+        (map != null ? HITS : MISSES).incrementAndGet();
+        return map;
+    }
+    
+    /**
+     * Returns the current generation of the cache, views built before it changes are never cached.
+     */
+    public static long getGeneration() {
+        return GENERATION.get();
+    }
+    
+    public static Map<DisplayCategory<?>, CategoryView> put(Key key, long generation, Map<DisplayCategory<?>, CategoryView> map, long buildNanos) {
+        BUILD_NANOS.addAndGet(buildNanos);
+        Map<DisplayCategory<?>, CategoryView> view = Collections.unmodifiableMap(map);
+        synchronized (CACHE) {
+            if (GENERATION.get() == generation) {
+                CACHE.put(key, view);
+            }
+        }
+        return view;
+    }
+    
+    public static void invalidate() {
+        synchronized (CACHE) {
+            GENERATION.incrementAndGet();
+            CACHE.clear();
+        }
+    }
+    
+    public static long getHits() {
+        return HITS.get();
+    }
+    
+    public static long getMisses() {
+        return MISSES.get();
+    }
+    
+    /**
+     * Returns the total time spent building views that were not cached, in nanoseconds.
+     */
+    public static long getBuildNanos() {
+        return BUILD_NANOS.get();
+    }
+    
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+    
+    /**
+     * The displays found in the list of a category for a view, and the display specs they are merged into,
+     * which are only merged once.
+     */
+    public record CategoryView(List<Display> displays, Supplier<List<DisplaySpec>> specs) {}
+    
+    /**
+     * The normalized inputs of a {@link ViewSearchBuilder} that affect the view built from it,
+     * the preferred opened category only affects the screen and is left out.
+     */
+    public record Key(Set<CategoryIdentifier<?>> categories,
+                      List<HashedEntryStackWrapper> recipesFor,
+                      List<HashedEntryStackWrapper> usagesFor) {
+        public static Key of(ViewSearchBuilder builder) {
+            return new Key(new HashSet<>(builder.getCategories()), wrap(builder.getRecipesFor()), wrap(builder.getUsagesFor()));
+        }
+        
+        private static List<HashedEntryStackWrapper> wrap(List<EntryStack<?>> stacks) {
+            List<HashedEntryStackWrapper> wrappers = new ArrayList<>(stacks.size());
+            for (EntryStack<?> stack : stacks) {
+                wrappers.add(new HashedEntryStackWrapper(stack));
+            }
+            return wrappers;
+        }
+    }
+}
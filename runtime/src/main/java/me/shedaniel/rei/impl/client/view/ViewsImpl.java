@@ -24,8 +24,12 @@
 package me.shedaniel.rei.impl.client.view;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import me.shedaniel.rei.RoughlyEnoughItemsCore;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.registry.category.CategoryRegistry;
@@ -45,29 +49,58 @@ import me.shedaniel.rei.api.common.transfer.info.MenuInfoContext;
 import me.shedaniel.rei.api.common.transfer.info.MenuInfoRegistry;
 import me.shedaniel.rei.api.common.transfer.info.stack.SlotAccessor;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
-import me.shedaniel.rei.api.common.util.EntryIngredients;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.gui.craftable.CraftableDisplayIndex;
 import me.shedaniel.rei.impl.client.gui.craftable.CraftableFilter;
+import me.shedaniel.rei.impl.client.registry.display.DisplayIndex;
+import me.shedaniel.rei.impl.client.registry.display.DisplayRegistryImpl;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 import me.shedaniel.rei.impl.display.DisplaySpec;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.player.LocalPlayer;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.Slot;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @ApiStatus.Internal
 public class ViewsImpl implements Views {
+    @Nullable
+    private static volatile CraftableDisplayIndex craftableIndex;
+    
+    static {
+        CraftableFilter.INSTANCE.addListener((added, removed) -> {
+            CraftableDisplayIndex index = craftableIndex;
+            if (index != null) {
+                index.updateMaterials(added, removed);
+            }
+        });
+    }
+    
     public static Map<DisplayCategory<?>, List<DisplaySpec>> buildMapFor(ViewSearchBuilder builder) {
         if (PluginManager.areAnyReloading()) {
             RoughlyEnoughItemsCore.LOGGER.info("Cancelled Views buildMap since plugins have not finished reloading.");
             return Maps.newLinkedHashMap();
         }
         
+        return buildMapFor(builder, DisplayRegistry.getInstance());
+    }
+    
+    private static Map<DisplayCategory<?>, List<DisplaySpec>> buildMapFor(ViewSearchBuilder builder, DisplayRegistry displayRegistry) {
         Stopwatch stopwatch = Stopwatch.createStarted();
         Set<CategoryIdentifier<?>> categories = builder.getCategories();
         List<EntryStack<?>> recipesForStacks = builder.getRecipesFor();
@@ -78,171 +111,340 @@ public class ViewsImpl implements Views {
         usagesForStacks = Stream.concat(usagesForStacks.stream(), usagesForStacks.stream().map(EntryStack::wildcard))
                 .distinct()
                 .collect(Collectors.toList());
-        DisplayRegistry displayRegistry = DisplayRegistry.getInstance();
         
-        Map<DisplayCategory<?>, List<Display>> result = Maps.newLinkedHashMap();
-        for (CategoryRegistry.CategoryConfiguration<?> categoryConfiguration : CategoryRegistry.getInstance()) {
-            DisplayCategory<?> category = categoryConfiguration.getCategory();
+        // Start the dynamic generators first, so they run alongside the category lookups,
+        // slow generators all share the same deadline, after which only the displays they have generated so far are used
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ConfigObject.getInstance().getDynamicDisplayGeneratorTimeout());
+        List<GeneratorTask> categoryGeneratorTasks = new ArrayList<>();
+        for (Map.Entry<CategoryIdentifier<?>, List<DynamicDisplayGenerator<?>>> entry : displayRegistry.getCategoryDisplayGenerators().entrySet()) {
+            CategoryIdentifier<?> categoryId = entry.getKey();
+            DisplayCategory<?> category = CategoryRegistry.getInstance().get(categoryId).getCategory();
             if (CategoryRegistry.getInstance().isCategoryInvisible(category)) continue;
+            
+            for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) entry.getValue()) {
+                categoryGeneratorTasks.add(new GeneratorTask(displayRegistry, generator, builder, category));
+            }
+        }
+        
+        List<GeneratorTask> globalGeneratorTasks = new ArrayList<>();
+        for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) displayRegistry.getGlobalDisplayGenerators()) {
+            globalGeneratorTasks.add(new GeneratorTask(displayRegistry, generator, builder, null));
+        }
+        
+        Map<DisplayCategory<?>, ViewCache.CategoryView> categoryViews = getCategoryDisplays(builder, displayRegistry, recipesForStacks, usagesForStacks);
+        
+        Map<DisplayCategory<?>, Set<Display>> generatedDisplays = new LinkedHashMap<>();
+        for (GeneratorTask task : categoryGeneratorTasks) {
+            generatedDisplays.computeIfAbsent(task.category, category -> new LinkedHashSet<>()).addAll(task.join(deadline));
+        }
+        
+        Map<DisplayCategory<?>, List<Display>> addedDisplays = Maps.newLinkedHashMap();
+        for (Map.Entry<DisplayCategory<?>, Set<Display>> entry : generatedDisplays.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                CollectionUtils.getOrPutEmptyList(addedDisplays, entry.getKey()).addAll(entry.getValue());
+            }
+        }
+        
+        for (GeneratorTask task : globalGeneratorTasks) {
+            for (Display display : task.join(deadline)) {
+                CollectionUtils.getOrPutEmptyList(addedDisplays, CategoryRegistry.getInstance().get(display.getCategoryIdentifier()).getCategory()).add(display);
+            }
+        }
+        
+        int generatorsCount = categoryGeneratorTasks.size() + globalGeneratorTasks.size();
+        
+        // The merged displays of the categories are reused, unless generators added displays to them
+        Map<DisplayCategory<?>, List<DisplaySpec>> resultSpeced = new LinkedHashMap<>();
+        for (Map.Entry<DisplayCategory<?>, ViewCache.CategoryView> entry : categoryViews.entrySet()) {
+            List<Display> added = addedDisplays.remove(entry.getKey());
+            if (added == null) {
+                resultSpeced.put(entry.getKey(), entry.getValue().specs().get());
+            } else {
+                List<Display> displays = new ArrayList<>(entry.getValue().displays());
+                displays.addAll(added);
+                resultSpeced.put(entry.getKey(), mergeDisplays(entry.getKey(), displays));
+            }
+        }
+        for (Map.Entry<DisplayCategory<?>, List<Display>> entry : addedDisplays.entrySet()) {
+            resultSpeced.put(entry.getKey(), mergeDisplays(entry.getKey(), entry.getValue()));
+        }
+        
+        String message = String.format("Built Recipe View in %s for %d categories, %d recipes for, %d usages for and %d live recipe generators.",
+                stopwatch.stop(), categories.size(), recipesForStacks.size(), usagesForStacks.size(), generatorsCount);
+        if (ConfigObject.getInstance().doDebugSearchTimeRequired()) {
+            RoughlyEnoughItemsCore.LOGGER.info(message);
+        } else {
+            RoughlyEnoughItemsCore.LOGGER.trace(message);
+        }
+        return resultSpeced;
+    }
+    
+    /**
+     * Merges the displays of {@code category} which its display merger considers the same, if merging displays is enabled.
+     */
+    private static List<DisplaySpec> mergeDisplays(DisplayCategory<?> category, List<Display> displays) {
+        DisplayMerger<Display> merger = (DisplayMerger<Display>) category.getDisplayMerger();
+        if (!ConfigObject.getInstance().doMergeDisplayUnderOne() || merger == null) {
+            return (List<DisplaySpec>) (List<? extends DisplaySpec>) displays;
+        }
+        
+        class Wrapped implements DisplaySpec {
+            private Display display;
+            private List<ResourceLocation> ids = null;
+            
+            public Wrapped(Display display) {
+                this.display = display;
+            }
+            
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (!(o instanceof Wrapped)) return false;
+                Wrapped wrapped = (Wrapped) o;
+                return merger.canMerge(display, wrapped.display);
+            }
+            
+            @Override
+            public int hashCode() {
+                return merger.hashOf(display);
+            }
+            
+            @Override
+            public Display provideInternalDisplay() {
+                return display;
+            }
+            
+            @Override
+            public Collection<ResourceLocation> provideInternalDisplayIds() {
+                if (ids == null) {
+                    ids = new ArrayList<>();
+                    Optional<ResourceLocation> location = display.getDisplayLocation();
+                    if (location.isPresent()) {
+                        ids.add(location.get());
+                    }
+                }
+                return ids;
+            }
+            
+            public void add(Display display) {
+                Optional<ResourceLocation> location = display.getDisplayLocation();
+                if (location.isPresent()) {
+                    provideInternalDisplayIds().add(location.get());
+                }
+            }
+        }
+        Map<Wrapped, Wrapped> wrappedSet = new LinkedHashMap<>();
+        List<Wrapped> wrappeds = new ArrayList<>();
+        
+        for (Display display : displays) {
+            Wrapped wrapped = new Wrapped(display);
+            if (wrappedSet.containsKey(wrapped)) {
+                wrappedSet.get(wrapped).add(display);
+            } else {
+                wrappedSet.put(wrapped, wrapped);
+                wrappeds.add(wrapped);
+            }
+        }
+        
+        return (List<DisplaySpec>) (List) wrappeds;
+    }
+    
+    /**
+     * Returns the displays of the category lists for the view with the display specs they are merged into,
+     * which are cached unless the visibility of displays may change at any time.
+     * Displays from dynamic generators are not included, as they are generated again for every view.
+     */
+    private static Map<DisplayCategory<?>, ViewCache.CategoryView> getCategoryDisplays(ViewSearchBuilder builder, DisplayRegistry displayRegistry,
+            List<EntryStack<?>> recipesForStacks, List<EntryStack<?>> usagesForStacks) {
+        boolean cacheable = displayRegistry instanceof DisplayRegistryImpl impl && impl.isDisplayVisibilityStable();
+        ViewCache.Key key = cacheable ? ViewCache.Key.of(builder) : null;
+        if (key != null) {
+            Map<DisplayCategory<?>, ViewCache.CategoryView> cached = ViewCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        long generation = ViewCache.getGeneration();
+        long start = System.nanoTime();
+        DisplayIndex displayIndex = displayRegistry instanceof DisplayRegistryImpl impl ? impl.getDisplayIndex() : null;
+        Set<CategoryIdentifier<?>> workstationCategories = new HashSet<>();
+        for (EntryStack<?> usagesFor : usagesForStacks) {
+            workstationCategories.addAll(CategoryRegistry.getInstance().getWorkstationCategories(usagesFor));
+        }
+        Lookup lookup = new Lookup(displayRegistry, displayIndex, builder.getCategories(), recipesForStacks, usagesForStacks,
+                hashFuzzy(recipesForStacks), hashFuzzy(usagesForStacks), workstationCategories);
+        
+        List<CategoryRegistry.CategoryConfiguration<?>> categoryConfigurations = new ArrayList<>();
+        for (CategoryRegistry.CategoryConfiguration<?> categoryConfiguration : CategoryRegistry.getInstance()) {
+            if (!CategoryRegistry.getInstance().isCategoryInvisible(categoryConfiguration.getCategory())) {
+                categoryConfigurations.add(categoryConfiguration);
+            }
+        }
+        
+        // Categories are looked up independently, the ordered stream keeps the results in the category order
+        List<Set<Display>> categoryDisplays = WorkerPool.invoke(() -> categoryConfigurations.parallelStream()
+                .map(lookup::collect)
+                .collect(Collectors.toList()));
+        
+        Map<DisplayCategory<?>, ViewCache.CategoryView> result = Maps.newLinkedHashMap();
+        for (int i = 0; i < categoryConfigurations.size(); i++) {
+            Set<Display> set = categoryDisplays.get(i);
+            if (!set.isEmpty()) {
+                DisplayCategory<?> category = categoryConfigurations.get(i).getCategory();
+                List<Display> displays = List.copyOf(set);
+                result.put(category, new ViewCache.CategoryView(displays, Suppliers.memoize(() -> mergeDisplays(category, displays))));
+            }
+        }
+        if (key != null) {
+            return ViewCache.put(key, generation, result, System.nanoTime() - start);
+        }
+        return result;
+    }
+    
+    private record Lookup(DisplayRegistry displayRegistry, @Nullable DisplayIndex displayIndex, Set<CategoryIdentifier<?>> categories,
+                          List<EntryStack<?>> recipesForStacks, List<EntryStack<?>> usagesForStacks,
+                          LongSet recipesForHashes, LongSet usagesForHashes, Set<CategoryIdentifier<?>> workstationCategories) {
+        private Set<Display> collect(CategoryRegistry.CategoryConfiguration<?> categoryConfiguration) {
             CategoryIdentifier<?> categoryId = categoryConfiguration.getCategoryIdentifier();
             List<Display> allRecipesFromCategory = displayRegistry.get((CategoryIdentifier<Display>) categoryId);
             
             Set<Display> set = Sets.newLinkedHashSet();
             if (categories.contains(categoryId)) {
-                for (Display display : allRecipesFromCategory) {
-                    if (displayRegistry.isDisplayVisible(display)) {
+                addVisible(set, allRecipesFromCategory);
+                return set;
+            }
+            if (displayIndex != null) {
+                BitSet candidates = displayIndex.findCandidates(categoryId, recipesForHashes, usagesForHashes);
+                for (int i = candidates.nextSetBit(0); i >= 0 && i < allRecipesFromCategory.size(); i = candidates.nextSetBit(i + 1)) {
+                    Display display = allRecipesFromCategory.get(i);
+                    if (display != null && isRecipeOrUsage(display, recipesForStacks, usagesForStacks) && isVisible(display, i)) {
                         set.add(display);
                     }
                 }
-                if (!set.isEmpty()) {
-                    CollectionUtils.getOrPutEmptyList(result, category).addAll(set);
-                }
-                continue;
-            }
-            for (Display display : allRecipesFromCategory) {
-                if (!displayRegistry.isDisplayVisible(display)) continue;
-                if (!recipesForStacks.isEmpty()) {
-                    back:
-                    for (List<? extends EntryStack<?>> results : display.getOutputEntries()) {
-                        for (EntryStack<?> otherEntry : results) {
-                            for (EntryStack<?> recipesFor : recipesForStacks) {
-                                if (EntryStacks.equalsFuzzy(otherEntry, recipesFor)) {
-                                    set.add(display);
-                                    break back;
-                                }
-                            }
-                        }
-                    }
-                }
-                if (!usagesForStacks.isEmpty()) {
-                    back:
-                    for (List<? extends EntryStack<?>> input : display.getInputEntries()) {
-                        for (EntryStack<?> otherEntry : input) {
-                            for (EntryStack<?> usagesFor : usagesForStacks) {
-                                if (EntryStacks.equalsFuzzy(otherEntry, usagesFor)) {
-                                    set.add(display);
-                                    break back;
-                                }
-                            }
-                        }
+            } else {
+                for (int i = 0; i < allRecipesFromCategory.size(); i++) {
+                    Display display = allRecipesFromCategory.get(i);
+                    if (display == null || !isVisible(display, i)) continue;
+                    if (isRecipeOrUsage(display, recipesForStacks, usagesForStacks)) {
+                        set.add(display);
                     }
                 }
             }
-            for (EntryStack<?> usagesFor : usagesForStacks) {
-                if (isStackWorkStationOfCategory(categoryConfiguration, usagesFor)) {
-                    set.addAll(CollectionUtils.filterToSet(allRecipesFromCategory, displayRegistry::isDisplayVisible));
-                    break;
-                }
+            if (workstationCategories.contains(categoryId)) {
+                addVisible(set, allRecipesFromCategory);
             }
-            if (!set.isEmpty()) {
-                CollectionUtils.getOrPutEmptyList(result, category).addAll(set);
+            return set;
+        }
+        
+        private void addVisible(Set<Display> set, List<Display> displays) {
+            for (int i = 0; i < displays.size(); i++) {
+                Display display = displays.get(i);
+                if (display != null && isVisible(display, i)) {
+                    set.add(display);
+                }
             }
         }
         
-        int generatorsCount = 0;
+        private boolean isVisible(Display display, int position) {
+            return displayRegistry instanceof DisplayRegistryImpl impl ? impl.isDisplayVisible(display, position) : displayRegistry.isDisplayVisible(display);
+        }
+    }
+    
+    private static class GeneratorTask {
+        /**
+         * Generators run on their own threads rather than the worker pool, so slow generators never hold up the category lookups.
+         */
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("REI-Display-Generator-%d")
+                .setDaemon(true)
+                .build());
+        /**
+         * The latest task of each generator. A generator only runs one task at a time, a task for a new view
+         * starts once the task for the previous view has finished, so opening views again does not pile up threads of a slow generator.
+         */
+        private static final Map<DynamicDisplayGenerator<?>, GeneratorTask> LATEST = new ConcurrentHashMap<>();
+        private final DynamicDisplayGenerator<Display> generator;
+        @Nullable
+        private final DisplayCategory<?> category;
+        private final List<Display> displays = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile boolean cancelled;
         
-        for (Map.Entry<CategoryIdentifier<?>, List<DynamicDisplayGenerator<?>>> entry : displayRegistry.getCategoryDisplayGenerators().entrySet()) {
-            CategoryIdentifier<?> categoryId = entry.getKey();
-            DisplayCategory<?> category = CategoryRegistry.getInstance().get(categoryId).getCategory();
-            if (CategoryRegistry.getInstance().isCategoryInvisible(category)) continue;
-            Set<Display> set = new LinkedHashSet<>();
-            generatorsCount += entry.getValue().size();
-            
-            for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) entry.getValue()) {
-                generateLiveDisplays(displayRegistry, generator, builder, set::add);
-            }
-            
-            if (!set.isEmpty()) {
-                CollectionUtils.getOrPutEmptyList(result, category).addAll(set);
+        private GeneratorTask(DisplayRegistry displayRegistry, DynamicDisplayGenerator<Display> generator, ViewSearchBuilder builder, @Nullable DisplayCategory<?> category) {
+            this.generator = generator;
+            this.category = category;
+            GeneratorTask previous = LATEST.put(generator, this);
+            CompletableFuture<Void> previousDone = previous != null ? previous.done : CompletableFuture.completedFuture(null);
+            previousDone.whenCompleteAsync((result, throwable) -> run(displayRegistry, builder), EXECUTOR);
+        }
+        
+        private void run(DisplayRegistry displayRegistry, ViewSearchBuilder builder) {
+            try {
+                if (!cancelled) {
+                    generateLiveDisplays(displayRegistry, generator, builder, this::accept);
+                }
+                done.complete(null);
+            } catch (Throwable throwable) {
+                done.completeExceptionally(throwable);
+            } finally {
+                LATEST.remove(generator, this);
             }
         }
         
-        Consumer<Display> displayConsumer = display -> {
-            CollectionUtils.getOrPutEmptyList(result, CategoryRegistry.getInstance().get(display.getCategoryIdentifier()).getCategory()).add(display);
-        };
-        for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) displayRegistry.getGlobalDisplayGenerators()) {
-            generatorsCount++;
-            generateLiveDisplays(displayRegistry, generator, builder, displayConsumer);
+        private void accept(Display display) {
+            // Stops the generator at the next display once its results are no longer read
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            displays.add(display);
         }
         
-        Map<DisplayCategory<?>, List<DisplaySpec>> resultSpeced = (Map<DisplayCategory<?>, List<DisplaySpec>>) (Map) new LinkedHashMap<>(result);
-        // optimize displays
-        if (ConfigObject.getInstance().doMergeDisplayUnderOne()) {
-            for (Map.Entry<DisplayCategory<?>, List<Display>> entry : result.entrySet()) {
-                DisplayMerger<Display> merger = (DisplayMerger<Display>) entry.getKey().getDisplayMerger();
-                
-                if (merger != null) {
-                    class Wrapped implements DisplaySpec {
-                        private Display display;
-                        private List<ResourceLocation> ids = null;
-                        
-                        public Wrapped(Display display) {
-                            this.display = display;
-                        }
-                        
-                        @Override
-                        public boolean equals(Object o) {
-                            if (this == o) return true;
-                            if (!(o instanceof Wrapped)) return false;
-                            Wrapped wrapped = (Wrapped) o;
-                            return merger.canMerge(display, wrapped.display);
-                        }
-                        
-                        @Override
-                        public int hashCode() {
-                            return merger.hashOf(display);
-                        }
-                        
-                        @Override
-                        public Display provideInternalDisplay() {
-                            return display;
-                        }
-                        
-                        @Override
-                        public Collection<ResourceLocation> provideInternalDisplayIds() {
-                            if (ids == null) {
-                                ids = new ArrayList<>();
-                                Optional<ResourceLocation> location = display.getDisplayLocation();
-                                if (location.isPresent()) {
-                                    ids.add(location.get());
-                                }
-                            }
-                            return ids;
-                        }
-                        
-                        public void add(Display display) {
-                            Optional<ResourceLocation> location = display.getDisplayLocation();
-                            if (location.isPresent()) {
-                                provideInternalDisplayIds().add(location.get());
-                            }
-                        }
-                    }
-                    Map<Wrapped, Wrapped> wrappedSet = new LinkedHashMap<>();
-                    List<Wrapped> wrappeds = new ArrayList<>();
-                    
-                    for (Display display : entry.getValue()) {
-                        Wrapped wrapped = new Wrapped(display);
-                        if (wrappedSet.containsKey(wrapped)) {
-                            wrappedSet.get(wrapped).add(display);
-                        } else {
-                            wrappedSet.put(wrapped, wrapped);
-                            wrappeds.add(wrapped);
-                        }
+        /**
+         * Waits for the generator until {@code deadline}, returning the displays generated so far
+         * and cancelling the generator if it takes longer.
+         */
+        private List<Display> join(long deadline) {
+            try {
+                done.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                RoughlyEnoughItemsCore.LOGGER.warn("Dynamic display generator " + generator + " took too long, only using the displays generated so far.");
+                cancelled = true;
+            } catch (ExecutionException e) {
+                RoughlyEnoughItemsCore.LOGGER.error("Failed to generate displays from " + generator, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (displays) {
+                return new ArrayList<>(displays);
+            }
+        }
+    }
+    
+    private static LongSet hashFuzzy(List<EntryStack<?>> stacks) {
+        LongSet hashes = new LongOpenHashSet(stacks.size());
+        for (EntryStack<?> stack : stacks) {
+            hashes.add(EntryStacks.hashFuzzy(stack));
+        }
+        return hashes;
+    }
+    
+    private static boolean isRecipeOrUsage(Display display, List<EntryStack<?>> recipesForStacks, List<EntryStack<?>> usagesForStacks) {
+        return (!recipesForStacks.isEmpty() && containsAnyFuzzy(display.getOutputEntries(), recipesForStacks))
+                || (!usagesForStacks.isEmpty() && containsAnyFuzzy(display.getInputEntries(), usagesForStacks));
+    }
+    
+    private static boolean containsAnyFuzzy(List<EntryIngredient> ingredients, List<EntryStack<?>> stacks) {
+        for (EntryIngredient ingredient : ingredients) {
+            for (EntryStack<?> otherEntry : ingredient) {
+                for (EntryStack<?> stack : stacks) {
+                    if (EntryStacks.equalsFuzzy(otherEntry, stack)) {
+                        return true;
                     }
-                    
-                    resultSpeced.put(entry.getKey(), (List<DisplaySpec>) (List) wrappeds);
                 }
             }
         }
-        
-        String message = String.format("Built Recipe View in %s for %d categories, %d recipes for, %d usages for and %d live recipe generators.",
-                stopwatch.stop(), categories.size(), recipesForStacks.size(), usagesForStacks.size(), generatorsCount);
-        if (ConfigObject.getInstance().doDebugSearchTimeRequired()) {
-            RoughlyEnoughItemsCore.LOGGER.info(message);
-        } else {
-            RoughlyEnoughItemsCore.LOGGER.trace(message);
-        }
-        return resultSpeced;
+        return false;
     }
     
     private static <T extends Display> void generateLiveDisplays(DisplayRegistry displayRegistry, DynamicDisplayGenerator<T> generator, ViewSearchBuilder builder, Consumer<T> displayConsumer) {
@@ -284,83 +486,120 @@ public class ViewsImpl implements Views {
             return Collections.emptySet();
         }
         
+        CraftableDisplayIndex index = getCraftableIndex();
         AbstractContainerMenu menu = Minecraft.getInstance().player.containerMenu;
         Set<EntryStack<?>> craftables = new HashSet<>();
-        for (Map.Entry<CategoryIdentifier<?>, List<Display>> entry : DisplayRegistry.getInstance().getAll().entrySet()) {
-            List<Display> displays = entry.getValue();
-            for (Display display : displays) {
-                MenuInfo<AbstractContainerMenu, Display> info = menu != null ?
-                        MenuInfoRegistry.getInstance().getClient(display, menu)
-                        : null;
-                
-                class InfoContext implements MenuInfoContext<AbstractContainerMenu, LocalPlayer, Display> {
-                    private Display display;
-                    
-                    public InfoContext(Display display) {
-                        this.display = display;
-                    }
-                    
-                    @Override
-                    public AbstractContainerMenu getMenu() {
-                        return menu;
-                    }
-                    
-                    @Override
-                    public LocalPlayer getPlayerEntity() {
-                        return Minecraft.getInstance().player;
-                    }
-                    
-                    @Override
-                    public MenuInfo<AbstractContainerMenu, Display> getContainerInfo() {
-                        return info;
-                    }
-                    
-                    @Override
-                    public CategoryIdentifier<Display> getCategoryIdentifier() {
-                        return (CategoryIdentifier<Display>) entry.getKey();
-                    }
-                    
-                    @Override
-                    public Display getDisplay() {
-                        return display;
-                    }
+        // The index is kept up to date with the inventory changes while holding the lock of the filter
+        synchronized (CraftableFilter.INSTANCE) {
+            BitSet craftableDisplays = index.getCraftable();
+            for (int i = craftableDisplays.nextSetBit(0); i >= 0; i = craftableDisplays.nextSetBit(i + 1)) {
+                Display display = index.getDisplay(i);
+                if (display != null) {
+                    addOutputs(display, craftables);
                 }
-                
-                InfoContext context = new InfoContext(display);
-                Iterable<SlotAccessor> inputSlots = info != null ? info.getInputSlots(context) : Collections.emptySet();
-                int slotsCraftable = 0;
-                List<EntryIngredient> requiredInput = display.getRequiredEntries();
-                for (EntryIngredient slot : requiredInput) {
-                    if (slot.isEmpty()) {
-                        slotsCraftable++;
-                        continue;
-                    }
-                    for (EntryStack<?> slotPossible : slot) {
-                        if (CraftableFilter.INSTANCE.matches(slotPossible, inputSlots)) {
-                            slotsCraftable++;
-                            break;
-                        }
+            }
+            
+            if (menu != null) {
+                // Only displays missing a material which is in the menu can be crafted with its input slots
+                LongSet menuStacks = new LongOpenHashSet();
+                for (Slot slot : menu.slots) {
+                    if (!slot.getItem().isEmpty()) {
+                        menuStacks.add(EntryStacks.hashFuzzy(EntryStacks.of(slot.getItem())));
                     }
                 }
-                if (slotsCraftable == display.getRequiredEntries().size()) {
-                    display.getOutputEntries().stream().flatMap(Collection::stream).collect(Collectors.toCollection(() -> craftables));
+                BitSet candidates = index.findCandidates(menuStacks);
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    Display display = index.getDisplay(i);
+                    if (display != null && isCraftableInMenu(display, menu)) {
+                        addOutputs(display, craftables);
+                    }
                 }
             }
         }
         return craftables;
     }
     
-    private static <T> boolean isStackWorkStationOfCategory(CategoryRegistry.CategoryConfiguration<?> category, EntryStack<T> stack) {
-        for (EntryIngredient ingredient : category.getWorkstations()) {
-            if (EntryIngredients.testFuzzy(ingredient, stack)) {
-                return true;
+    private static CraftableDisplayIndex getCraftableIndex() {
+        DisplayRegistry displayRegistry = DisplayRegistry.getInstance();
+        CraftableDisplayIndex index = craftableIndex;
+        // Displays added, removed or replaced after the reload also need to be indexed
+        if (index == null || index.getModificationCount() != getModificationCount(displayRegistry)) {
+            synchronized (ViewsImpl.class) {
+                index = craftableIndex;
+                int modificationCount = getModificationCount(displayRegistry);
+                if (index == null || index.getModificationCount() != modificationCount) {
+                    index = CraftableDisplayIndex.build(displayRegistry.getAll(), modificationCount);
+                    synchronized (CraftableFilter.INSTANCE) {
+                        index.setMaterials(CraftableFilter.INSTANCE.getInventoryStacks());
+                        craftableIndex = index;
+                    }
+                }
             }
         }
-        return false;
+        return index;
+    }
+    
+    private static int getModificationCount(DisplayRegistry displayRegistry) {
+        return displayRegistry instanceof DisplayRegistryImpl impl ? impl.getModificationCount() : displayRegistry.displaySize();
+    }
+    
+    private static void addOutputs(Display display, Set<EntryStack<?>> craftables) {
+        for (EntryIngredient ingredient : display.getOutputEntries()) {
+            craftables.addAll(ingredient);
+        }
+    }
+    
+    private static boolean isCraftableInMenu(Display display, AbstractContainerMenu menu) {
+        MenuInfo<AbstractContainerMenu, Display> info = MenuInfoRegistry.getInstance().getClient(display, menu);
+        if (info == null) return false;
+        
+        class InfoContext implements MenuInfoContext<AbstractContainerMenu, LocalPlayer, Display> {
+            @Override
+            public AbstractContainerMenu getMenu() {
+                return menu;
+            }
+            
+            @Override
+            public LocalPlayer getPlayerEntity() {
+                return Minecraft.getInstance().player;
+            }
+            
+            @Override
+            public MenuInfo<AbstractContainerMenu, Display> getContainerInfo() {
+                return info;
+            }
+            
+            @Override
+            public CategoryIdentifier<Display> getCategoryIdentifier() {
+                return (CategoryIdentifier<Display>) display.getCategoryIdentifier();
+            }
+            
+            @Override
+            public Display getDisplay() {
+                return display;
+            }
+        }
+        
+        Iterable<SlotAccessor> inputSlots = info.getInputSlots(new InfoContext());
+        for (EntryIngredient slot : display.getRequiredEntries()) {
+            if (slot.isEmpty()) continue;
+            boolean craftable = false;
+            for (EntryStack<?> slotPossible : slot) {
+                if (CraftableFilter.INSTANCE.matches(slotPossible, inputSlots)) {
+                    craftable = true;
+                    break;
+                }
+            }
+            if (!craftable) {
+                return false;
+            }
+        }
+        return true;
     }
     
     @Override
     public void startReload() {
-        
+        ViewCache.invalidate();
+        craftableIndex = null;
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.common.entry;
+
+import dev.architectury.fluid.FluidStack;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of canonical stack values, so equal item and fluid stacks in the ingredients of displays
+ * are only kept once in memory, no matter how many displays use them.
+ * <p>
+ * Only the values are shared, every display keeps its own {@link EntryStack}s and ingredient lists,
+ * since those are modified after displays are built, for example to add tooltips to them.
+ */
+@ApiStatus.Internal
+public class EntryIngredientPool {
+    /**
+     * Rough shallow size of an item or fluid stack used to estimate the memory saved, assuming compressed references.
+     */
+    private static final int ESTIMATED_VALUE_BYTES = 48;
+    private final Long2ObjectMap<List<Object>> pool = new Long2ObjectOpenHashMap<>();
+    private long stacks;
+    private long internedValues;
+    private long uniqueValues;
+    private long estimatedBytesSaved;
+    
+    /**
+     * Replaces the values of the stacks in {@code ingredients} with their canonical instances,
+     * the ingredients themselves are left untouched.
+     */
+    public void internAll(List<EntryIngredient> ingredients) {
+        for (EntryIngredient ingredient : ingredients) {
+            for (EntryStack<?> stack : ingredient) {
+                if (stack instanceof TypedEntryStack<?> typedStack) {
+                    intern(typedStack);
+                }
+            }
+        }
+    }
+    
+    private synchronized <T> void intern(TypedEntryStack<T> stack) {
+        T value = stack.getValue();
+        if (!(value instanceof ItemStack) && !(value instanceof FluidStack)) return;
+        stacks++;
+        long hash = System.identityHashCode(stack.getDefinition());
+        hash = 31 * hash + EntryStacks.hashExact(stack);
+        hash = 31 * hash + Long.hashCode(getAmount(value));
+        List<Object> candidates = pool.computeIfAbsent(hash, h -> new ArrayList<>(1));
+        for (Object candidate : candidates) {
+            if (candidate == value) return;
+            if (isSame(stack, candidate)) {
+                internedValues++;
+                estimatedBytesSaved += ESTIMATED_VALUE_BYTES;
+                stack.internValue((T) candidate);
+                return;
+            }
+        }
+        candidates.add(value);
+        uniqueValues++;
+    }
+    
+    /**
+     * Exact hashes do not include the amount of stacks, so candidates with the same amount are compared exactly.
+     */
+    private static <T> boolean isSame(TypedEntryStack<T> stack, Object candidate) {
+        if (candidate.getClass() != stack.getValue().getClass() || getAmount(candidate) != getAmount(stack.getValue())) return false;
+        return stack.getDefinition().equals(stack.getValue(), (T) candidate, ComparisonContext.EXACT);
+    }
+    
+    private static long getAmount(Object value) {
+        if (value instanceof ItemStack itemStack) {
+            return itemStack.getCount();
+        } else if (value instanceof FluidStack fluidStack) {
+            return fluidStack.getAmount();
+        }
+        return 0;
+    }
+    
+    public synchronized Report getReport() {
+        return new Report(stacks, internedValues, uniqueValues, estimatedBytesSaved);
+    }
+    
+    public synchronized void clear() {
+        pool.clear();
+        stacks = 0;
+        internedValues = 0;
+        uniqueValues = 0;
+        estimatedBytesSaved = 0;
+    }
+    
+    public record Report(long stacks, long internedValues, long uniqueValues, long estimatedBytesSaved) {}
+}
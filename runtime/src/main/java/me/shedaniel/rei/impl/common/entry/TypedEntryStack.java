@@ -45,4 +45,11 @@ public class TypedEntryStack<T> extends AbstractEntryStack<T> {
     public T getValue() {
         return value;
     }
+    
+    /**
+     * Replaces the value with an equal instance shared with other stacks, see {@link EntryIngredientPool}.
+     */
+    void internValue(T value) {
+        this.value = value;
+    }
 }
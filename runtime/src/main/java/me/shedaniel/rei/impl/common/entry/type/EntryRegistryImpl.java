@@ -46,12 +46,14 @@ import me.shedaniel.rei.impl.client.entry.filtering.FilteringCacheImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextType;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringRule;
+import me.shedaniel.rei.impl.client.entry.filtering.FilteringState;
 import me.shedaniel.rei.impl.client.gui.ScreenOverlayImpl;
+import me.shedaniel.rei.impl.client.search.SearchIndex;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.core.NonNullList;
-import net.minecraft.core.Registry;
 import net.minecraft.world.item.CreativeModeTab;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
@@ -69,11 +71,10 @@ import java.util.stream.Stream;
 @Environment(EnvType.CLIENT)
 public class EntryRegistryImpl implements EntryRegistry {
     public List<Runnable> refilterListener = Lists.newCopyOnWriteArrayList();
-    private List<EntryStack<?>> preFilteredList = Lists.newCopyOnWriteArrayList();
-    private List<EntryStack<?>> entries = Lists.newCopyOnWriteArrayList();
-    private LongSet entriesHash = new LongOpenHashSet();
+    private volatile List<EntryStack<?>> preFilteredList = Collections.emptyList();
+    private EntryStore store = new EntryStore();
     @Nullable
-    private List<HashedEntryStackWrapper> reloadingRegistry;
+    private FilteringState filteringState;
     private boolean reloading;
     
     @Override
@@ -89,31 +90,29 @@ public class EntryRegistryImpl implements EntryRegistry {
     @Override
     public void startReload() {
         refilterListener.clear();
-        entries = Lists.newCopyOnWriteArrayList();
-        entriesHash = new LongOpenHashSet();
-        reloadingRegistry = Lists.newArrayListWithCapacity(Registry.ITEM.keySet().size() + 100);
-        preFilteredList = Lists.newCopyOnWriteArrayList();
+        store = new EntryStore();
+        preFilteredList = Collections.emptyList();
+        filteringState = null;
         reloading = true;
     }
     
     @Override
     public void endReload() {
         reloading = false;
-        preFilteredList = Lists.newCopyOnWriteArrayList();
-        entries = Lists.newCopyOnWriteArrayList(CollectionUtils.filterAndMap(reloadingRegistry, ((Predicate<HashedEntryStackWrapper>) HashedEntryStackWrapper::isEmpty).negate(), HashedEntryStackWrapper::unwrap));
-        reloadingRegistry = null;
+        preFilteredList = Collections.emptyList();
+        store.removeIf(EntryStack::isEmpty);
         refilter();
         REIRuntime.getInstance().getOverlay().ifPresent(ScreenOverlay::queueReloadOverlay);
     }
     
     @Override
     public int size() {
-        return reloading ? reloadingRegistry.size() : entries.size();
+        return store.size();
     }
     
     @Override
     public Stream<EntryStack<?>> getEntryStacks() {
-        return reloading ? reloadingRegistry.stream().map(HashedEntryStackWrapper::unwrap) : entries.stream();
+        return store.snapshot().stream();
     }
     
     @Override
@@ -137,27 +136,25 @@ public class EntryRegistryImpl implements EntryRegistry {
         
         Stopwatch stopwatch = Stopwatch.createStarted();
         
-        FilteringContextImpl context = new FilteringContextImpl(entries);
-        FilteringCacheImpl cache = new FilteringCacheImpl();
+        List<EntryStack<?>> entries = store.snapshot();
         List<FilteringRule<?>> rules = ((ConfigObjectImpl) ConfigObject.getInstance()).getFilteringRules();
-        Stopwatch innerStopwatch = Stopwatch.createStarted();
-        for (int i = rules.size() - 1; i >= 0; i--) {
-            innerStopwatch.reset().start();
-            FilteringRule<?> rule = rules.get(i);
-            cache.setCache(rule, rule.prepareCache(true));
-            context.handleResult(rule.processFilteredStacks(context, cache, true));
-            RoughlyEnoughItemsCore.LOGGER.debug("Refiltered rule [%s] in %s.", FilteringRule.REGISTRY.getKey(rule).toString(), innerStopwatch.stop().toString());
-        }
+        FilteringState previousState = filteringState;
+        filteringState = FilteringState.update(previousState, entries, rules, store::contains);
+        LongSet hiddenHashes = filteringState.getHiddenHashes();
         
-        Set<HashedEntryStackWrapper> hiddenStacks = context.stacks.get(FilteringContextType.HIDDEN);
-        if (hiddenStacks.isEmpty()) {
-            preFilteredList = Lists.newCopyOnWriteArrayList(entries);
+        if (hiddenHashes.isEmpty()) {
+            preFilteredList = entries;
+        } else if (previousState != null && hiddenHashes.containsAll(previousState.getHiddenHashes())) {
+            // Nothing is shown again, only the entries that are newly hidden have to be removed
+            if (hiddenHashes.size() != previousState.getHiddenHashes().size()) {
+                LongSet newlyHidden = new LongOpenHashSet(hiddenHashes);
+                newlyHidden.removeAll(previousState.getHiddenHashes());
+                removePreFiltered(stack -> newlyHidden.contains(EntryStacks.hashExact(stack)));
+            }
         } else {
-            preFilteredList = entries.parallelStream()
-                    .map(HashedEntryStackWrapper::new)
-                    .filter(not(hiddenStacks::contains))
-                    .map(HashedEntryStackWrapper::unwrap)
-                    .collect(Collectors.toCollection(Lists::newCopyOnWriteArrayList));
+            preFilteredList = WorkerPool.invoke(() -> entries.parallelStream()
+                    .filter(stack -> !hiddenHashes.contains(EntryStacks.hashExact(stack)))
+                    .collect(Collectors.toList()));
         }
         
         RoughlyEnoughItemsCore.LOGGER.debug("Refiltered %d entries with %d rules in %s.", entries.size() - preFilteredList.size(), rules.size(), stopwatch.stop().toString());
@@ -188,44 +185,42 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public void addEntryAfter(@Nullable EntryStack<?> afterEntry, EntryStack<?> stack) {
-        if (reloading) {
-            int index = afterEntry != null ? reloadingRegistry.lastIndexOf(new HashedEntryStackWrapper(afterEntry)) : -1;
-            HashedEntryStackWrapper wrapper = new HashedEntryStackWrapper(stack);
-            if (this.entriesHash.add(wrapper.hashExact())) {
-                if (index >= 0) {
-                    reloadingRegistry.add(index, wrapper);
-                } else reloadingRegistry.add(wrapper);
-            }
-        } else if (this.entriesHash.add(EntryStacks.hashExact(stack))) {
-            if (afterEntry != null) {
-                int index = entries.lastIndexOf(afterEntry);
-                entries.add(index, stack);
-            } else entries.add(stack);
-            preFilteredList.addAll(refilterNew(Collections.singletonList(stack)));
+        if (store.add(afterEntry, stack, EntryStacks.hashExact(stack)) && !reloading) {
+            addPreFiltered(refilterNew(Collections.singletonList(stack)));
             queueSearchUpdate();
         }
     }
     
     @Override
     public void addEntriesAfter(@Nullable EntryStack<?> afterEntry, Collection<? extends EntryStack<?>> stacks) {
-        if (reloading) {
-            int index = afterEntry != null ? reloadingRegistry.lastIndexOf(new HashedEntryStackWrapper(afterEntry)) : -1;
-            List<HashedEntryStackWrapper> filtered = CollectionUtils.mapAndFilter(stacks, wrapper -> entriesHash.add(wrapper.hashExact()), HashedEntryStackWrapper::new);
-            if (index >= 0) {
-                reloadingRegistry.addAll(index, filtered);
-            } else reloadingRegistry.addAll(filtered);
-        } else {
-            List<EntryStack<?>> filtered = CollectionUtils.filterToList((Collection<EntryStack<?>>) stacks, stack -> entriesHash.add(EntryStacks.hashExact(stack)));
-            if (afterEntry != null) {
-                int index = entries.lastIndexOf(afterEntry);
-                entries.addAll(index, filtered);
-            } else entries.addAll(filtered);
-            preFilteredList.addAll(refilterNew(filtered));
+        List<EntryStack<?>> added = new ArrayList<>(stacks.size());
+        for (EntryStack<?> stack : stacks) {
+            if (store.add(afterEntry, stack, EntryStacks.hashExact(stack))) {
+                added.add(stack);
+            }
+        }
+        if (!reloading && !added.isEmpty()) {
+            addPreFiltered(refilterNew(added));
             queueSearchUpdate();
         }
     }
     
+    private void addPreFiltered(Collection<EntryStack<?>> stacks) {
+        List<EntryStack<?>> list = new ArrayList<>(preFilteredList.size() + stacks.size());
+        list.addAll(preFilteredList);
+        list.addAll(stacks);
+        preFilteredList = list;
+    }
+    
+    private void removePreFiltered(Predicate<EntryStack<?>> predicate) {
+        List<EntryStack<?>> list = new ArrayList<>(preFilteredList);
+        if (list.removeIf(predicate)) {
+            preFilteredList = list;
+        }
+    }
+    
     private void queueSearchUpdate() {
+        SearchIndex.invalidate();
         if (REIRuntimeImpl.getSearchField() != null) {
             ScreenOverlayImpl.getInstance().queueReloadSearch();
         }
@@ -234,6 +229,8 @@ public class EntryRegistryImpl implements EntryRegistry {
     private MutableLong lastRefilterWarning = new MutableLong(-1);
     
     private Collection<EntryStack<?>> refilterNew(Collection<EntryStack<?>> entries) {
+        // The rules have not seen the new entries, the next refilter has to process everything again
+        filteringState = null;
         if (lastRefilterWarning != null) {
             if (lastRefilterWarning.getValue() > 0 && System.currentTimeMillis() - lastRefilterWarning.getValue() > 5000) {
                 RoughlyEnoughItemsCore.LOGGER.warn("Detected runtime EntryRegistry modification, this can be extremely dangerous, or be extremely inefficient!");
@@ -254,92 +251,54 @@ public class EntryRegistryImpl implements EntryRegistry {
         if (hiddenStacks.isEmpty()) {
             return entries;
         } else {
-            return entries.parallelStream()
+            return WorkerPool.invoke(() -> entries.parallelStream()
                     .map(HashedEntryStackWrapper::new)
                     .filter(not(hiddenStacks::contains))
                     .map(HashedEntryStackWrapper::unwrap)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
         }
     }
     
     @Override
     public boolean alreadyContain(EntryStack<?> stack) {
-        return entriesHash.contains(EntryStacks.hashExact(stack));
+        return store.contains(EntryStacks.hashExact(stack));
     }
     
     @Override
     public boolean removeEntry(EntryStack<?> stack) {
-        if (reloading) {
-            HashedEntryStackWrapper wrapper = new HashedEntryStackWrapper(stack);
-            reloadingRegistry.remove(wrapper);
-            return entriesHash.remove(wrapper.hashExact());
-        } else {
-            preFilteredList.remove(stack);
-            entries.remove(stack);
-            return entriesHash.remove(EntryStacks.hashExact(stack));
+        if (store.remove(EntryStacks.hashExact(stack))) {
+            if (!reloading) {
+                removePreFiltered(stack::equals);
+            }
+            return true;
         }
+        return false;
     }
     
     @Override
     public boolean removeEntryIf(Predicate<? extends EntryStack<?>> predicate) {
-        if (reloading) {
-            return reloadingRegistry.removeIf(wrapper -> {
-                if (((Predicate<EntryStack<?>>) predicate).test(wrapper.unwrap())) {
-                    entriesHash.remove(wrapper.hashExact());
-                    return true;
-                }
-                
-                return false;
-            });
-        } else {
-            Predicate<EntryStack<?>> entryStackPredicate = stack -> {
-                if (((Predicate<EntryStack<?>>) predicate).test(stack)) {
-                    entriesHash.remove(EntryStacks.hashExact(stack));
-                    return true;
-                }
-                
-                return false;
-            };
-            preFilteredList.removeIf(entryStackPredicate);
-            return entries.removeIf(entryStackPredicate);
+        if (store.removeIf((Predicate<EntryStack<?>>) predicate)) {
+            if (!reloading) {
+                removePreFiltered(stack -> !store.contains(EntryStacks.hashExact(stack)));
+            }
+            return true;
         }
+        return false;
     }
     
     @Override
     public boolean removeEntryExactHashIf(LongPredicate predicate) {
-        LongPredicate entryStackPredicate = hash -> {
-            if (predicate.test(hash)) {
-                entriesHash.remove(hash);
-                return true;
+        if (store.removeHashIf(predicate)) {
+            if (!reloading) {
+                removePreFiltered(stack -> !store.contains(EntryStacks.hashExact(stack)));
             }
-            
-            return false;
-        };
-        
-        if (reloading) {
-            return reloadingRegistry.removeIf(wrapper -> entryStackPredicate.test(wrapper.hashExact()));
-        } else {
-            preFilteredList.removeIf(stack -> entryStackPredicate.test(EntryStacks.hashExact(stack)));
-            return entries.removeIf(stack -> entryStackPredicate.test(EntryStacks.hashExact(stack)));
+            return true;
         }
+        return false;
     }
     
     @Override
     public boolean removeEntryFuzzyHashIf(LongPredicate predicate) {
-        Predicate<EntryStack<?>> entryStackPredicate = stack -> {
-            if (predicate.test(EntryStacks.hashFuzzy(stack))) {
-                entriesHash.remove(EntryStacks.hashExact(stack));
-                return true;
-            }
-            
-            return false;
-        };
-        
-        if (reloading) {
-            return reloadingRegistry.removeIf(wrapper -> entryStackPredicate.test(wrapper.unwrap()));
-        } else {
-            preFilteredList.removeIf(entryStackPredicate);
-            return entries.removeIf(entryStackPredicate);
-        }
+        return removeEntryIf(stack -> predicate.test(EntryStacks.hashFuzzy(stack)));
     }
 }
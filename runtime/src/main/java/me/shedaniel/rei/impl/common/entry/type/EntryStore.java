@@ -0,0 +1,179 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry.type;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The registered entries, deduplicated by exact hash.
+ * <p>
+ * Entries get an ordinal in the order they are added, and are never moved, so adding or removing an entry does not
+ * copy the others. Entries added after another entry are attached to it, and the order of the entries is only
+ * resolved when a snapshot is published, which readers can then use without locking.
+ */
+@Environment(EnvType.CLIENT)
+final class EntryStore {
+    private final List<EntryStack<?>> stacks = new ArrayList<>();
+    private final LongArrayList hashes = new LongArrayList();
+    private final Long2IntMap ordinals = new Long2IntOpenHashMap();
+    private final IntArrayList roots = new IntArrayList();
+    private final Int2ObjectMap<IntArrayList> attached = new Int2ObjectOpenHashMap<>();
+    private int size;
+    @Nullable
+    private volatile List<EntryStack<?>> snapshot = Collections.emptyList();
+    
+    EntryStore() {
+        this.ordinals.defaultReturnValue(-1);
+    }
+    
+    public synchronized boolean contains(long hash) {
+        return ordinals.containsKey(hash);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Adds {@code stack} right before {@code anchor}, after the entries that were previously added there,
+     * or at the end if the anchor is not registered.
+     *
+     * @return whether the stack was added, or {@code false} if an entry with the same exact hash exists
+     */
+    public synchronized boolean add(@Nullable EntryStack<?> anchor, EntryStack<?> stack, long hash) {
+        if (ordinals.containsKey(hash)) return false;
+        int anchorOrdinal = anchor != null ? ordinals.get(EntryStacks.hashExact(anchor)) : -1;
+        int ordinal = stacks.size();
+        stacks.add(stack);
+        hashes.add(hash);
+        ordinals.put(hash, ordinal);
+        if (anchorOrdinal >= 0) {
+            attached.computeIfAbsent(anchorOrdinal, o -> new IntArrayList()).add(ordinal);
+        } else {
+            roots.add(ordinal);
+        }
+        size++;
+        snapshot = null;
+        return true;
+    }
+    
+    public synchronized boolean remove(long hash) {
+        int ordinal = ordinals.remove(hash);
+        if (ordinal < 0) return false;
+        removeOrdinal(ordinal);
+        return true;
+    }
+    
+    public synchronized boolean removeIf(Predicate<EntryStack<?>> predicate) {
+        boolean removed = false;
+        for (int ordinal = 0; ordinal < stacks.size(); ordinal++) {
+            EntryStack<?> stack = stacks.get(ordinal);
+            if (stack != null && predicate.test(stack)) {
+                ordinals.remove(hashes.getLong(ordinal));
+                removeOrdinal(ordinal);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+    
+    public synchronized boolean removeHashIf(LongPredicate predicate) {
+        boolean removed = false;
+        for (int ordinal = 0; ordinal < stacks.size(); ordinal++) {
+            if (stacks.get(ordinal) != null && predicate.test(hashes.getLong(ordinal))) {
+                ordinals.remove(hashes.getLong(ordinal));
+                removeOrdinal(ordinal);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+    
+    private void removeOrdinal(int ordinal) {
+        // Entries attached to the removed entry keep their place
+        stacks.set(ordinal, null);
+        size--;
+        snapshot = null;
+    }
+    
+    /**
+     * Returns the entries in order, the list is never modified after it is returned.
+     */
+    public List<EntryStack<?>> snapshot() {
+        List<EntryStack<?>> snapshot = this.snapshot;
+        if (snapshot != null) return snapshot;
+        synchronized (this) {
+            if (this.snapshot == null) {
+                this.snapshot = Collections.unmodifiableList(resolve());
+            }
+            return this.snapshot;
+        }
+    }
+    
+    private List<EntryStack<?>> resolve() {
+        List<EntryStack<?>> list = new ArrayList<>(size);
+        // Walks the attached entries without recursion, since they may be chained very deeply
+        IntArrayList ordinalStack = new IntArrayList();
+        IntArrayList indexStack = new IntArrayList();
+        for (int i = 0; i < roots.size(); i++) {
+            ordinalStack.add(roots.getInt(i));
+            indexStack.add(0);
+            while (!ordinalStack.isEmpty()) {
+                int top = ordinalStack.size() - 1;
+                int ordinal = ordinalStack.getInt(top);
+                int index = indexStack.getInt(top);
+                IntArrayList children = attached.get(ordinal);
+                if (children != null && index < children.size()) {
+                    indexStack.set(top, index + 1);
+                    ordinalStack.add(children.getInt(index));
+                    indexStack.add(0);
+                } else {
+                    ordinalStack.removeInt(top);
+                    indexStack.removeInt(top);
+                    EntryStack<?> stack = stacks.get(ordinal);
+                    if (stack != null) {
+                        list.add(stack);
+                    }
+                }
+            }
+        }
+        return list;
+    }
+}
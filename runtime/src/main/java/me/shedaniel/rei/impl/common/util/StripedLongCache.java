@@ -0,0 +1,105 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.util;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.LongFunction;
+
+/**
+ * A bounded {@code long} keyed cache, split into stripes that are locked separately so that concurrent
+ * threads rarely wait on each other. Each stripe evicts its least recently used value when it is full.
+ */
+@ApiStatus.Internal
+public final class StripedLongCache<V> {
+    private final Stripe<V>[] stripes;
+    private final int mask;
+    
+    public StripedLongCache(int stripeCount, int maximumSize) {
+        int count = HashCommon.nextPowerOfTwo(Math.max(1, stripeCount));
+        int stripeSize = Math.max(1, maximumSize / count);
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(stripeSize);
+        }
+    }
+    
+    @Nullable
+    public V get(long key) {
+        Stripe<V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.map.getAndMoveToLast(key);
+        }
+    }
+    
+    /**
+     * Returns the value of {@code key}, computing it outside of the lock when absent.
+     * A {@code null} value is returned but not cached.
+     */
+    @Nullable
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value != null) return value;
+        value = function.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+    
+    public void put(long key, V value) {
+        Stripe<V> stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.map.putAndMoveToLast(key, value);
+            if (stripe.map.size() > stripe.maximumSize) {
+                stripe.map.removeFirst();
+            }
+        }
+    }
+    
+    public void clear() {
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.map.clear();
+            }
+        }
+    }
+    
+    private Stripe<V> stripe(long key) {
+        return stripes[(int) HashCommon.mix(key) & mask];
+    }
+    
+    private static class Stripe<V> {
+        private final Long2ObjectLinkedOpenHashMap<V> map = new Long2ObjectLinkedOpenHashMap<>();
+        private final int maximumSize;
+        
+        private Stripe(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+}
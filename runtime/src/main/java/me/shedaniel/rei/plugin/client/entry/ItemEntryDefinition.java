@@ -46,6 +46,7 @@ import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
 import me.shedaniel.rei.api.common.entry.type.EntryType;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
 import me.shedaniel.rei.api.common.util.ImmutableTextComponent;
+import me.shedaniel.rei.impl.client.entry.renderer.ItemIconAtlas;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.CrashReport;
@@ -284,7 +285,7 @@ public class ItemEntryDefinition implements EntryDefinition<ItemStack>, EntrySer
         
         @Override
         public void renderBase(EntryStack<ItemStack> entry, BakedModel model, PoseStack matrices, MultiBufferSource.BufferSource immediate, Rectangle bounds, int mouseX, int mouseY, float delta) {
-            if (!entry.isEmpty()) {
+            if (!entry.isEmpty() && !ItemIconAtlas.queue(entry, model, bounds)) {
                 ItemStack value = entry.getValue();
                 matrices.pushPose();
                 matrices.translate(bounds.getCenterX() / SCALE, bounds.getCenterY() / -SCALE, entry.getZ());
@@ -311,6 +312,7 @@ public class ItemEntryDefinition implements EntryDefinition<ItemStack>, EntrySer
             endGL(entry, model);
             RenderSystem.getModelViewStack().popPose();
             RenderSystem.applyModelViewMatrix();
+            ItemIconAtlas.flush(matrices);
         }
         
         @Override
@@ -24,10 +24,8 @@
 package me.shedaniel.rei.plugin.client.runtime;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.MapMaker;
 import dev.architectury.event.EventResult;
-import it.unimi.dsi.fastutil.objects.Reference2BooleanMap;
-import it.unimi.dsi.fastutil.objects.Reference2BooleanMaps;
-import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
 import me.shedaniel.rei.RoughlyEnoughItemsCore;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
@@ -37,29 +35,36 @@ import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.entry.EntryIngredient;
 import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.*;
+import me.shedaniel.rei.impl.client.registry.display.DisplayList;
+import me.shedaniel.rei.impl.client.util.WorkerPool;
 
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
 
 public class FilteredStacksVisibilityHandler implements DisplayVisibilityPredicate {
     private boolean checkHiddenStacks;
-    private Reference2BooleanMap<Display> visible = Reference2BooleanMaps.synchronize(new Reference2BooleanOpenHashMap<>());
+    // Displays are weakly referenced, so lazily referenced displays can still be released
+    private Map<Display, Boolean> visible = new MapMaker().weakKeys().makeMap();
     private List<FilteringRule<?>> filteringRules;
     private FilteringCacheImpl cache;
-    private final Predicate<Display> displayPredicate = this::checkHiddenStacks;
     
     @Override
     public EventResult handleDisplay(DisplayCategory<?> category, Display display) {
         if (checkHiddenStacks) {
-            return visible.computeBooleanIfAbsent(display, displayPredicate) ? EventResult.pass() : EventResult.interruptFalse();
+            return visible.computeIfAbsent(display, this::checkHiddenStacks) ? EventResult.pass() : EventResult.interruptFalse();
         }
         
         return EventResult.pass();
     }
     
+    @Override
+    public Stability getStability() {
+        return Stability.STABLE;
+    }
+    
     public void reset() {
         checkHiddenStacks = ConfigObject.getInstance().shouldFilterDisplays();
-        visible = Reference2BooleanMaps.synchronize(new Reference2BooleanOpenHashMap<>());
+        visible = new MapMaker().weakKeys().makeMap();
         
         if (checkHiddenStacks) {
             filteringRules = ((ConfigObjectImpl) ConfigObject.getInstance()).getFilteringRules();
@@ -74,18 +79,23 @@ public class FilteredStacksVisibilityHandler implements DisplayVisibilityPredica
             filteringRules = null;
             cache = null;
         }
+        
+        DisplayRegistry.getInstance().invalidateDisplayVisibility();
     }
     
     public void cacheExisting() {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        DisplayRegistry.getInstance().getAll().values().parallelStream().map(displays -> {
-            Reference2BooleanMap<Display> current = new Reference2BooleanOpenHashMap<>();
-            for (Display display : displays) {
-                current.put(display, checkHiddenStacks(display));
-            }
-            return current;
-        }).forEach(map -> {
-            visible.putAll(map);
+        WorkerPool.invoke(() -> {
+            DisplayRegistry.getInstance().getAll().values().parallelStream().forEach(displays -> {
+                for (int i = 0; i < displays.size(); i++) {
+                    // Released lazy displays are not filled again here, they are checked once they are filled
+                    Display display = displays instanceof DisplayList displayList ? displayList.getIfPresent(i) : displays.get(i);
+                    if (display != null) {
+                        visible.put(display, checkHiddenStacks(display));
+                    }
+                }
+            });
+            return null;
         });
         RoughlyEnoughItemsCore.LOGGER.debug("Computed existing filtered displays with %d rules in %s", filteringRules.size(), stopwatch.stop());
     }
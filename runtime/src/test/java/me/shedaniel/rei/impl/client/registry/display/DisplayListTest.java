@@ -0,0 +1,96 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.registry.display;
+
+import me.shedaniel.rei.api.common.display.Display;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisplayListTest {
+    private static Display createDisplay() {
+        return (Display) Proxy.newProxyInstance(Display.class.getClassLoader(), new Class[]{Display.class}, (proxy, method, args) -> {
+            if (method.getReturnType() == List.class) return Collections.emptyList();
+            if (method.getName().equals("equals")) return proxy == args[0];
+            if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+            if (method.getName().equals("toString")) return "TestDisplay";
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+    
+    @Test
+    public void lazyDisplayIsReleased() {
+        AtomicInteger refills = new AtomicInteger();
+        Object origin = new Object();
+        DisplayList displays = new DisplayList(new AtomicInteger(), (fillOrigin, fillIndex) -> {
+            assertSame(origin, fillOrigin);
+            assertEquals(0, fillIndex);
+            refills.incrementAndGet();
+            return createDisplay();
+        });
+        Display display = createDisplay();
+        displays.addLazy(display, origin, 0);
+        assertSame(display, displays.getIfPresent(0));
+        
+        displays.release(0);
+        assertNull(displays.getIfPresent(0));
+        assertNotNull(displays.getSignature(0));
+        assertEquals(0, refills.get());
+        
+        Display refilled = displays.get(0);
+        assertNotNull(refilled);
+        assertNotSame(display, refilled);
+        assertEquals(1, refills.get());
+        assertSame(refilled, displays.getIfPresent(0));
+        assertSame(refilled, displays.get(0));
+        assertEquals(1, refills.get());
+    }
+    
+    @Test
+    public void strongDisplayIsNotReleased() {
+        DisplayList displays = new DisplayList(new AtomicInteger(), (origin, fillIndex) -> fail("Strongly referenced displays are never filled again"));
+        Display display = createDisplay();
+        displays.add(display);
+        displays.release(0);
+        assertSame(display, displays.getIfPresent(0));
+        assertSame(display, displays.get(0));
+    }
+    
+    @Test
+    public void modificationsAreCounted() {
+        AtomicInteger modifications = new AtomicInteger();
+        DisplayList displays = new DisplayList(modifications, (origin, fillIndex) -> null);
+        displays.add(createDisplay());
+        displays.addLazy(createDisplay(), new Object(), 0);
+        displays.set(0, createDisplay());
+        displays.remove(1);
+        assertEquals(4, modifications.get());
+        assertEquals(1, displays.size());
+    }
+}